@@ -14,6 +14,16 @@ public class LanScanProfile implements ScanProfile {
     private List<String> sourceLogPaths = new ArrayList<>();
     private DateRanges dateRange;
     private int limit;
+    private int topKeys;
+    private int memoryBudget;
+    private ResultStorages resultStorage;
+    private String cacheDir;
+    private String columnStoreDir;
+    private String deviceLimits;
+    private int throttleRate;
+    private int throttleThreads;
+    private int parallelism;
+    private int scanTimeout;
     private LogTypes logType;
     private PropTypes sortingProp;
     private GroupTypes groupType;
@@ -125,6 +135,97 @@ public class LanScanProfile implements ScanProfile {
         rgxExp = rgx;
     }
 
+    // Restriction up amount of keys kept by the heap op, 0 means no restriction
+    public int getTopKeys() {
+        return topKeys;
+    }
+
+    public void setTopKeys(int topKeys) {
+        this.topKeys = topKeys;
+    }
+
+    // Amount of megabytes the heap op keeps in memory before spilling on disk, 0 means no spilling
+    public int getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public void setMemoryBudget(int memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    // Defines whether the heap and user ops keep event texts or references to events in log files
+    public ResultStorages getResultStorage() {
+        return resultStorage;
+    }
+
+    public void setResultStorage(ResultStorages resultStorage) {
+        this.resultStorage = resultStorage;
+    }
+
+    // Directory of the persistent result cache, empty string means results are not cached
+    public String getCacheDir() {
+        return cacheDir;
+    }
+
+    public void setCacheDir(String cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    // Directory of the column store of log files, empty string means log files are parsed on every scan
+    public String getColumnStoreDir() {
+        return columnStoreDir;
+    }
+
+    public void setColumnStoreDir(String columnStoreDir) {
+        this.columnStoreDir = columnStoreDir;
+    }
+
+    // Reading threads and readahead of the devices as "device=threads:readaheadKb;...",
+    // empty string means log files are read by the scan itself
+    public String getDeviceLimits() {
+        return deviceLimits;
+    }
+
+    public void setDeviceLimits(String deviceLimits) {
+        this.deviceLimits = deviceLimits;
+    }
+
+    // Kilobytes of log files read per second, 0 means reading is not throttled
+    public int getThrottleRate() {
+        return throttleRate;
+    }
+
+    public void setThrottleRate(int throttleRate) {
+        this.throttleRate = throttleRate;
+    }
+
+    // Restriction up amount of threads processing events, 0 means all processors are used
+    public int getThrottleThreads() {
+        return throttleThreads;
+    }
+
+    public void setThrottleThreads(int throttleThreads) {
+        this.throttleThreads = throttleThreads;
+    }
+
+    // Threads of the dedicated pool of the scan, 0 means the scan runs on the pool shared by all scans
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    // Seconds after which the running scan is cancelled, 0 means the scan has no deadline
+    public int getScanTimeout() {
+        return scanTimeout;
+    }
+
+    public void setScanTimeout(int scanTimeout) {
+        this.scanTimeout = scanTimeout;
+    }
+
     public String getName() {
         return name;
     }
@@ -146,6 +247,16 @@ public class LanScanProfile implements ScanProfile {
         ScanProfile cloned = new LanScanProfile(rgxOp);
         cloned.setDateRange(dateRange);
         cloned.setLimit(limit);
+        cloned.setTopKeys(topKeys);
+        cloned.setMemoryBudget(memoryBudget);
+        cloned.setResultStorage(resultStorage);
+        cloned.setCacheDir(cacheDir);
+        cloned.setColumnStoreDir(columnStoreDir);
+        cloned.setDeviceLimits(deviceLimits);
+        cloned.setThrottleRate(throttleRate);
+        cloned.setThrottleThreads(throttleThreads);
+        cloned.setParallelism(parallelism);
+        cloned.setScanTimeout(scanTimeout);
         cloned.setLogType(logType);
         cloned.setSortingProp(sortingProp);
         cloned.setGroupType(groupType);
@@ -161,6 +272,16 @@ public class LanScanProfile implements ScanProfile {
     public void clear() {
         dateRange = DateRanges.ANY;
         limit = 100; // restriction up amount of events on
+        topKeys = 0;
+        memoryBudget = 0;
+        resultStorage = ResultStorages.EVENTS;
+        cacheDir = "";
+        columnStoreDir = "";
+        deviceLimits = "";
+        throttleRate = 0;
+        throttleThreads = 0;
+        parallelism = 0;
+        scanTimeout = 0;
         logType = LogTypes.ANY;
         sortingProp = PropTypes.ANY;
         groupType = GroupTypes.BY_PROPS;
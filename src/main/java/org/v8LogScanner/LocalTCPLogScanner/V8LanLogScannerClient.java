@@ -12,6 +12,7 @@ import org.v8LogScanner.logsCfg.LogBuilder;
 import org.v8LogScanner.rgx.AbstractOp;
 import org.v8LogScanner.rgx.IRgxOp;
 import org.v8LogScanner.rgx.IRgxSelector.SelectDirections;
+import org.v8LogScanner.rgx.ScanCancellation;
 import org.v8LogScanner.rgx.ScanProfile;
 import org.v8LogScanner.rgx.ScanProfile.GroupTypes;
 import org.v8LogScanner.rgx.ScanProfile.RgxOpTypes;
@@ -43,6 +44,8 @@ public class V8LanLogScannerClient extends ProcessListener implements V8LogScann
 
     private ScanProfile profile;
     private IRgxOp rgxOp;
+    // token of the running local scan, null if the client has not started a scan
+    private volatile ScanCancellation cancellation = null;
 
     /**
      * @param host - host IP or host name without domain name
@@ -184,17 +187,25 @@ public class V8LanLogScannerClient extends ProcessListener implements V8LogScann
 
     }
 
-    @SuppressWarnings("unchecked")
     public void startRgxOp() {
+        startRgxOp(new ScanCancellation(profile.getScanTimeout() * 1000L));
+    }
+
+    /**
+     * The remote scan is cancelled by the server when its deadline passes or the connection is closed
+     */
+    @SuppressWarnings("unchecked")
+    public void startRgxOp(ScanCancellation cancellation) {
 
         if (isLocalHost()) {
+            this.cancellation = cancellation;
             LogsOperations logsOp = new LogsOperations();
             getListeners().forEach(listener -> logsOp.addListener(listener));
             List<String> logFiles = logsOp.readLogFiles(profile);
 
             rgxOp = AbstractOp.buildRgxOp(profile);
             getListeners().forEach(listener -> rgxOp.addListener(listener));
-            rgxOp.execute(logFiles);
+            rgxOp.execute(logFiles, cancellation);
             return;
         }
 
@@ -322,6 +333,19 @@ public class V8LanLogScannerClient extends ProcessListener implements V8LogScann
         connections.forEach((ip, conn) -> conn.close());
     }
 
+    // the remote scan is cancelled by closing the connection with the server
+    public void cancelRgxOp() {
+
+        if (!isLocalHost()) {
+            close();
+            return;
+        }
+
+        ScanCancellation running = cancellation;
+        if (running != null)
+            running.cancel("the scan is cancelled by the user");
+    }
+
     // Proxy methods
 
     @Override
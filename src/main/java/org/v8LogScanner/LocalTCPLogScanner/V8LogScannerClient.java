@@ -2,6 +2,7 @@ package org.v8LogScanner.LocalTCPLogScanner;
 
 import org.v8LogScanner.commonly.ProcessEvent;
 import org.v8LogScanner.rgx.IRgxSelector.SelectDirections;
+import org.v8LogScanner.rgx.ScanCancellation;
 import org.v8LogScanner.rgx.ScanProfile;
 import org.v8LogScanner.rgx.SelectorEntry;
 
@@ -27,6 +28,10 @@ public interface V8LogScannerClient {
 
     void startRgxOp();
 
+    void startRgxOp(ScanCancellation cancellation);
+
+    void cancelRgxOp();
+
     ScanProfile getProfile();
 
     void setProfile(ScanProfile profile);
@@ -9,12 +9,14 @@ import org.v8LogScanner.commonly.Constants;
 import org.v8LogScanner.commonly.ExcpReporting;
 import org.v8LogScanner.commonly.ProcessEvent;
 import org.v8LogScanner.rgx.IRgxSelector.SelectDirections;
+import org.v8LogScanner.rgx.ScanCancellation;
 import org.v8LogScanner.rgx.ScanProfile;
 import org.v8LogScanner.rgx.SelectorEntry;
 
 import java.io.*;
 import java.net.ServerSocket;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class V8LogScannerServer implements SocketEvent {
 
@@ -24,6 +26,8 @@ public class V8LogScannerServer implements SocketEvent {
     private BufferedReader in = null;
     private int port = Constants.serverPort;
     private final V8LogScannerClient localClient;
+    // scans running for the clients, they are cancelled when the connection of the client is closed
+    private final Map<TCPConnection, ScanCancellation> jobs = new ConcurrentHashMap<>();
 
     public V8LogScannerServer(int port) throws LanServerNotStarted {
         this(port, System.out, System.in);
@@ -132,6 +136,12 @@ public class V8LogScannerServer implements SocketEvent {
         synchronized (conns) {
             conns.remove(connection);
         }
+
+        ScanCancellation job = jobs.remove(connection);
+        if (job != null) {
+            job.cancel("the connection with the client is closed");
+            logEvent(connection, "Server cancelled the client's scan as the connection was closed");
+        }
     }
 
     @Override
@@ -205,16 +215,29 @@ public class V8LogScannerServer implements SocketEvent {
 
         ScanProfile profile = (ScanProfile) dataFromClient.getData("profile");
         localClient.setProfile(profile);
+        if (profile.getThrottleRate() > 0 || profile.getThrottleThreads() > 0)
+            logEvent(connection, String.format("Throttled scan: %s kb/s, %s threads (0 means no restriction)",
+                    profile.getThrottleRate(), profile.getThrottleThreads()));
+        ScanCancellation cancellation = new ScanCancellation(profile.getScanTimeout() * 1000L);
         ProcessEvent procEvent = new ProcessEvent() {
             public void invoke(List<String> info) {
                 V8LogScannerData dataToClient = new V8LogScannerData(ScannerCommands.GET_PROC_INFO);
                 dataToClient.putData("info", info);
-                connection.send(dataToClient);
+                // nobody waits for the result when the client is gone
+                if (!connection.send(dataToClient))
+                    cancellation.cancel("the client does not receive the processing info");
             }
         };
 
         localClient.addListener(procEvent);
-        localClient.startRgxOp();
+        jobs.put(connection, cancellation);
+        try {
+            localClient.startRgxOp(cancellation);
+        } finally {
+            jobs.remove(connection, cancellation);
+        }
+        if (cancellation.isCancelled())
+            logEvent(connection, String.format("Scan cancelled: %s", cancellation.reason()));
     }
 
     private V8LogScannerData select(V8LogScannerData dataFromClient) {
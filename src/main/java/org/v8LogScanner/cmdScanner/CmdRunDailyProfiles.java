@@ -0,0 +1,17 @@
+package org.v8LogScanner.cmdScanner;
+
+import org.v8LogScanner.cmdAppl.CmdCommand;
+
+public class CmdRunDailyProfiles implements CmdCommand {
+
+    @Override
+    public String getTip() {
+        return "";
+    }
+
+    @Override
+    public void execute() {
+        V8LogScannerAppl appl = V8LogScannerAppl.instance();
+        appl.startDailyProfiles();
+    }
+}
@@ -0,0 +1,32 @@
+package org.v8LogScanner.cmdScanner;
+
+import org.v8LogScanner.cmdAppl.CmdCommand;
+import org.v8LogScanner.commonly.Strokes;
+
+public class CmdSetTopKeys implements CmdCommand {
+
+    @Override
+    public String getTip() {
+        Number topKeys = V8LogScannerAppl.instance().profile.getTopKeys();
+        return "[" + (topKeys.intValue() == 0 ? "ALL" : topKeys.toString()) + "]";
+    }
+
+    @Override
+    public void execute() {
+
+        V8LogScannerAppl appl = V8LogScannerAppl.instance();
+
+        String[] message = new String[1];
+        message[0] = "Input integer number of the heaviest keys kept in memory during scanning (0 means all keys)."
+                + "\nOther keys are folded into the single \"other\" key. This option only works for the heap log scanning:";
+        String userInput = appl.getConsole().askInput(
+                message,
+                l_input -> Strokes.isNumeric(l_input),
+                true
+        );
+        if (userInput == null) {
+            return;
+        }
+        appl.profile.setTopKeys(Integer.parseInt(userInput));
+    }
+}
@@ -10,10 +10,14 @@ import org.v8LogScanner.cmdAppl.MenuCmd;
 import org.v8LogScanner.cmdAppl.MenuItemCmd;
 import org.v8LogScanner.commonly.Constants;
 import org.v8LogScanner.commonly.ProcessEvent;
+import org.v8LogScanner.logs.LogsOperations;
 import org.v8LogScanner.logsCfg.LogBuilder;
+import org.v8LogScanner.rgx.BatchScan;
+import org.v8LogScanner.rgx.IRgxOp;
 import org.v8LogScanner.rgx.IRgxSelector.SelectDirections;
 import org.v8LogScanner.rgx.RegExp;
 import org.v8LogScanner.rgx.ScanProfile;
+import org.v8LogScanner.rgx.SelectorEntry;
 import org.v8LogScanner.rgx.ScanProfile.RgxOpTypes;
 import com.fasterxml.jackson.*;
 
@@ -125,6 +129,7 @@ public class V8LogScannerAppl {
         heapLogScan.add(new MenuItemCmd("AND WHERE event in", new CmdAddLogEvent()));
         heapLogScan.add(new MenuItemCmd("AND WHERE event property in", new CmdAddLogFilter()));
         heapLogScan.add(new MenuItemCmd("GROUP BY", new CmdAddGroupBy()));
+        heapLogScan.add(new MenuItemCmd("LIMIT keys to the heaviest", new CmdSetTopKeys()));
         heapLogScan.add(new MenuItemCmd("Reset all", new CmdResetAll()));
         heapLogScan.add(new MenuItemCmd("Start", new CmdStartMapReduce()));
 
@@ -152,6 +157,7 @@ public class V8LogScannerAppl {
         m_autoModes.add(new MenuItemCmd("Find 1C deadlocks by ConnectID", new CmdGet1CDeadlocksByConnectID(), cursorLogScan));
         m_autoModes.add(new MenuItemCmd("Find SQL deadlocks and timeouts", new CmdGetSQlLockError(), cursorLogScan));
         m_autoModes.add(new MenuItemCmd("Find all deadlocks and timeouts by user", new CmdGetTopDeadlocksByUser(), cursorLogScan));
+        m_autoModes.add(new MenuItemCmd("Run daily profiles in one pass (slowest SQL, EXCP, deadlocks)", new CmdRunDailyProfiles(), m_autoModes));
 
         // Item 5.
         main.add(new MenuItemCmd("Configure logcfg.xml", null, m_config));
@@ -294,6 +300,39 @@ public class V8LogScannerAppl {
         showResults();
     }
 
+    // the daily auto profiles read the log files of the local machine once for all of them
+    void startDailyProfiles() {
+
+        cmdAppl.clearConsole();
+
+        List<ScanProfile> profiles = ScanProfile.buildDailyProfiles(profile);
+
+        // the log paths and dates are the same for all of the profiles, so their files are listed once
+        ScanProfile allFiles = profiles.get(0).clone();
+        allFiles.setLogType(ScanProfile.LogTypes.ANY);
+        allFiles.setRgxList(new ArrayList<>());
+        allFiles.getLogPaths().addAll(profile.getLogPaths());
+        LogsOperations logsOp = new LogsOperations();
+        logsOp.addListener(procEvent);
+        List<String> logFiles = logsOp.readLogFiles(allFiles);
+
+        BatchScan batch = new BatchScan();
+        for (ScanProfile dailyProfile : profiles)
+            batch.add(dailyProfile, LogsOperations.selectLogFiles(logFiles, dailyProfile));
+        batch.addListener(procEvent);
+        batch.execute();
+
+        List<IRgxOp> ops = batch.getOps();
+        for (int i = 0; i < ops.size(); i++) {
+            IRgxOp rgxOp = ops.get(i);
+            cmdAppl.println(String.format("\n%s:%s", profiles.get(i).getName(),
+                    rgxOp.getFinalInfo(LogsOperations.getTotalSizeDescr())));
+            for (SelectorEntry entry : rgxOp.select(10, SelectDirections.FORWARD))
+                cmdAppl.println(String.format("SIZE: %s, %s", entry.size(), entry.getKey()));
+        }
+        cmdAppl.askInput(new String[]{"\nPress Enter to continue"}, n -> true, false, true);
+    }
+
     private void showResults() {
 
         MenuCmd showResults = new MenuCmd(() -> String.format("Results:\n%s", getFinalInfo()), null);
@@ -19,6 +19,15 @@ final public class Constants {
     // using to limit event portion for one iteration pass in RgxReader
     public final static int logEventsCount = 10000;
 
+    // threads of the pool shared by the scans of the application or the server,
+    // set by the v8LogScanner.parallelism system property
+    public static final int scanParallelism = Math.max(Integer.getInteger("v8LogScanner.parallelism",
+            Runtime.getRuntime().availableProcessors()), 1);
+
+    // directory of the time indexes and value filters built for log files during scanning
+    public static final String indexDir = Paths.get(System.getProperty("java.io.tmpdir"),
+            "v8LogScanner", "index").toString();
+
     /**
      *  if true system logs will be collected in the program catalog
      */
@@ -0,0 +1,285 @@
+package org.v8LogScanner.logs;
+
+import org.v8LogScanner.commonly.Constants;
+import org.v8LogScanner.commonly.ExcpReporting;
+import org.v8LogScanner.commonly.Filter;
+import org.v8LogScanner.rgx.RegExp;
+import org.v8LogScanner.rgx.RegExp.PropTypes;
+import org.v8LogScanner.rgx.RgxOpManager;
+import org.v8LogScanner.rgx.TimeIndex;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Persistent catalog of the scanned log files. For each file the catalog keeps its size and modification time,
+ * the first and the last event timestamps, the count of events of each type and the process directory.
+ * Entries are added during full scans of files and are valid while the size and the modification time
+ * of the file are the same. The catalog is used to skip files before reading them and to estimate the scan.
+ */
+public class LogCatalog {
+
+    // changes when the format of the catalog file changes
+    private static final String FORMAT_VERSION = "1";
+    private static final Pattern EVENT_NAME = Pattern.compile("\\w+");
+    // digits of the time key mmssffffff in the timestamp
+    private static final long HOUR_DIVISOR = 10_000_000_000L;
+    private static final long MINUTE_DIVISOR = 100_000_000L;
+
+    private static LogCatalog instance = null;
+
+    private final Path catalogFile;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean changed = false;
+
+    LogCatalog(Path catalogFile) {
+        this.catalogFile = catalogFile;
+        read();
+    }
+
+    public static synchronized LogCatalog getInstance() {
+        if (instance == null)
+            instance = new LogCatalog(Paths.get(Constants.indexDir, "catalog.bin"));
+        return instance;
+    }
+
+    /**
+     * Returns the entry of the log file or null if the file is not catalogued or has been changed since
+     */
+    public Entry get(String logFile) {
+
+        Entry entry = entries.get(keyOf(logFile));
+        if (entry == null)
+            return null;
+
+        try {
+            Path path = Paths.get(logFile);
+            if (entry.size != Files.size(path) || entry.modified != Files.getLastModifiedTime(path).toMillis())
+                return null;
+        } catch (IOException e) {
+            return null;
+        }
+        return entry;
+    }
+
+    public void put(Entry entry) {
+        entries.put(keyOf(entry.logFile), entry);
+        changed = true;
+    }
+
+    /**
+     * Whether events of the catalogued file can match any of the RegExps by their event types
+     * and their time filters. Returns true if the file is not catalogued.
+     */
+    public boolean mayMatch(String logFile, List<RegExp> rgxList) {
+
+        Entry entry = get(logFile);
+        if (entry == null || rgxList.isEmpty())
+            return true;
+
+        for (RegExp rgx : rgxList) {
+
+            List<String> names = rgx.getFilter(PropTypes.Event).getElements();
+            boolean typeMatches = names.isEmpty()
+                    || !names.stream().allMatch(name -> EVENT_NAME.matcher(name).matches())
+                    || names.stream().anyMatch(entry.eventTypes::containsKey);
+
+            Filter timeFilter = rgx.getFilters().get(PropTypes.Time);
+            int[] window = timeFilter == null ? null
+                    : TimeIndex.minuteWindow(timeFilter.getElements(), timeFilter.getComparisonType());
+            boolean timeMatches = window == null || entry.events == 0
+                    || window[0] <= entry.lastMinute() && window[1] >= entry.firstMinute();
+
+            if (typeMatches && timeMatches)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Description of the catalogued size and events count of the files
+     */
+    public String estimate(List<String> logFiles) {
+
+        long events = 0;
+        long size = 0;
+        int catalogued = 0;
+        for (String logFile : logFiles) {
+            Entry entry = get(logFile);
+            if (entry == null)
+                continue;
+            events += entry.events;
+            size += entry.size;
+            catalogued++;
+        }
+        return String.format("estimate: %s events, %2.3f mb in %s of %s files",
+                events, size / 1024d / 1024d, catalogued, logFiles.size());
+    }
+
+    public synchronized void save() {
+
+        if (!changed)
+            return;
+
+        try {
+            Files.createDirectories(catalogFile.getParent());
+            Path tmp = Files.createTempFile(catalogFile.getParent(), "catalog", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmp.toFile())))) {
+                out.writeUTF(FORMAT_VERSION);
+                out.writeInt(entries.size());
+                for (Entry entry : entries.values())
+                    entry.write(out);
+            }
+            Files.move(tmp, catalogFile, StandardCopyOption.REPLACE_EXISTING);
+            changed = false;
+        } catch (IOException e) {
+            ExcpReporting.LogError(this.getClass(), e);
+        }
+    }
+
+    // PRIVATE
+
+    private void read() {
+
+        if (!Files.exists(catalogFile))
+            return;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(catalogFile.toFile())))) {
+
+            if (!in.readUTF().equals(FORMAT_VERSION))
+                return;
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Entry entry = Entry.read(in);
+                entries.put(keyOf(entry.logFile), entry);
+            }
+        } catch (IOException e) {
+            ExcpReporting.LogError(this.getClass(), e);
+        }
+    }
+
+    private static String keyOf(String logFile) {
+        return Paths.get(logFile).toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * Metadata of the single log file collected from its events
+     */
+    public static class Entry {
+
+        private final String logFile;
+        private final long size;
+        private final long modified;
+        private final long fileHour;
+        private final String processDir;
+        private long firstTime = Long.MAX_VALUE;
+        private long lastTime = Long.MIN_VALUE;
+        private long events = 0;
+        private final Map<String, Long> eventTypes = new HashMap<>();
+
+        /**
+         * The size and the modification time must be taken before the file is read
+         */
+        public Entry(String logFile) throws IOException {
+
+            Path path = Paths.get(logFile);
+            this.logFile = logFile;
+            this.size = Files.size(path);
+            this.modified = Files.getLastModifiedTime(path).toMillis();
+            this.fileHour = RgxOpManager.getFileHour(logFile);
+            Path parent = path.toAbsolutePath().getParent();
+            this.processDir = parent == null || parent.getFileName() == null ? "" : parent.getFileName().toString();
+        }
+
+        private Entry(String logFile, long size, long modified, long fileHour, String processDir) {
+            this.logFile = logFile;
+            this.size = size;
+            this.modified = modified;
+            this.fileHour = fileHour;
+            this.processDir = processDir;
+        }
+
+        public void add(String event) {
+            long time = RgxOpManager.getTimestamp(event, fileHour);
+            firstTime = Math.min(firstTime, time);
+            lastTime = Math.max(lastTime, time);
+            events++;
+            eventTypes.merge(RgxOpManager.getEventName(event), 1L, Long::sum);
+        }
+
+        public String getLogFile() {
+            return logFile;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        // Timestamps are yyMMddHHmmssffffff numbers, the hour is taken from the file name
+        public long getFirstTime() {
+            return firstTime;
+        }
+
+        public long getLastTime() {
+            return lastTime;
+        }
+
+        public long getEvents() {
+            return events;
+        }
+
+        public Map<String, Long> getEventTypes() {
+            return eventTypes;
+        }
+
+        public String getProcessDir() {
+            return processDir;
+        }
+
+        private int firstMinute() {
+            return (int) (firstTime % HOUR_DIVISOR / MINUTE_DIVISOR);
+        }
+
+        private int lastMinute() {
+            return (int) (lastTime % HOUR_DIVISOR / MINUTE_DIVISOR);
+        }
+
+        private void write(DataOutputStream out) throws IOException {
+            out.writeUTF(logFile);
+            out.writeLong(size);
+            out.writeLong(modified);
+            out.writeLong(fileHour);
+            out.writeUTF(processDir);
+            out.writeLong(firstTime);
+            out.writeLong(lastTime);
+            out.writeLong(events);
+            out.writeInt(eventTypes.size());
+            for (Map.Entry<String, Long> type : eventTypes.entrySet()) {
+                out.writeUTF(type.getKey());
+                out.writeLong(type.getValue());
+            }
+        }
+
+        private static Entry read(DataInputStream in) throws IOException {
+            Entry entry = new Entry(in.readUTF(), in.readLong(), in.readLong(), in.readLong(), in.readUTF());
+            entry.firstTime = in.readLong();
+            entry.lastTime = in.readLong();
+            entry.events = in.readLong();
+            int types = in.readInt();
+            for (int i = 0; i < types; i++)
+                entry.eventTypes.put(in.readUTF(), in.readLong());
+            return entry;
+        }
+    }
+}
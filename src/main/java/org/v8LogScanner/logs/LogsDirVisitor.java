@@ -9,6 +9,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Calendar;
 import java.util.Date;
 import java.util.regex.Pattern;
 
@@ -17,16 +18,38 @@ public class LogsDirVisitor extends SimpleFileVisitor<Path> {
     public enum AcceptedLogTypes {ALL, LOG}
 
     private Pattern dirPattern = null;
-    private Date startDate = null;
-    private Date endDate = null;
-    private Date currfileDate = null;
+    // hours of the files are compared as yyMMddHH numbers
+    private final long startHour;
+    private final long endHour;
     private boolean currDirAccepted = true;
     private SimpleTable logFilesData = new SimpleTable("filePath, size, fileDate");
     private AcceptedLogTypes acceptedType = AcceptedLogTypes.LOG;
 
     public LogsDirVisitor(Date _startDate, Date _endDate) {
-        startDate = _startDate;
-        endDate = _endDate;
+        startHour = _startDate == null ? Long.MIN_VALUE : hourOf(_startDate);
+        endHour = _endDate == null ? Long.MAX_VALUE : hourOf(_endDate);
+    }
+
+    /**
+     * Hour of the log file named as yymmddhh.log without parsing it into a date.
+     * The name without the hour is later than any hour, so the file is skipped by any date range with the end
+     * and accepted without the range, as the far date given to such names by LogsOperations.parseDate.
+     *
+     * @return yyMMddHH number or Long.MAX_VALUE if the name does not start with the hour
+     */
+    public static long parseHour(String fileName) {
+
+        if (fileName.length() < 8)
+            return Long.MAX_VALUE;
+
+        long hour = 0;
+        for (int i = 0; i < 8; i++) {
+            char c = fileName.charAt(i);
+            if (c < '0' || c > '9')
+                return Long.MAX_VALUE;
+            hour = hour * 10 + (c - '0');
+        }
+        return hour;
     }
 
     public void setDirPattern(String dirPattern) {
@@ -58,8 +81,11 @@ public class LogsDirVisitor extends SimpleFileVisitor<Path> {
         if (!currDirAccepted)
             return FileVisitResult.CONTINUE;
 
-        if (acceptFile(file))
-            addTableEntry(file, attrs);
+        if (Files.isDirectory(file))
+            return FileVisitResult.CONTINUE;
+
+        if (acceptFile(file.getFileName().toString()))
+            addTableEntry(file, attrs.size());
 
         return FileVisitResult.CONTINUE;
     }
@@ -76,7 +102,7 @@ public class LogsDirVisitor extends SimpleFileVisitor<Path> {
 
     }
 
-    private boolean acceptDir(Path dir) {
+    boolean acceptDir(Path dir) {
 
         boolean isAcceptable = false;
 
@@ -91,43 +117,34 @@ public class LogsDirVisitor extends SimpleFileVisitor<Path> {
         return isAcceptable;
     }
 
-    private boolean acceptFile(Path file) {
-
-        boolean isAcceptable = false;
-
-        if (Files.isDirectory(file))
-            return false;
+    // both the walker and the visitor call the methods below
+    boolean acceptFile(String fileName) {
 
-        String currFileName = file.getFileName().toString();
-        if (acceptedType == AcceptedLogTypes.LOG && !logFileMatches(currFileName))
+        if (acceptedType == AcceptedLogTypes.LOG && !logFileMatches(fileName))
             return false;
-        // this operator must be placed above null checking of startDate and endDate
-        currfileDate = LogsOperations.parseDate(currFileName);
-
-        if (startDate == null && endDate == null)
-            return true;
-
-        if (currfileDate.equals(startDate) || currfileDate.equals(endDate) ||
-                (currfileDate.before(endDate) && currfileDate.after(startDate)))
-
-            isAcceptable = true;
 
-        return isAcceptable;
+        long fileHour = parseHour(fileName);
+        return fileHour >= startHour && fileHour <= endHour;
     }
 
-    private boolean logFileMatches(String onlyFileName) {
-        return onlyFileName.matches("(?i).*\\.log$");
+    private static boolean logFileMatches(String onlyFileName) {
+        return onlyFileName.regionMatches(true, onlyFileName.length() - 4, ".log", 0, 4);
     }
 
-    private SimpleTable.Entry addTableEntry(Path path, BasicFileAttributes attrs) throws IOException {
+    synchronized SimpleTable.Entry addTableEntry(Path path, long size) {
 
         SimpleTable.Entry newRow = logFilesData.addRow();
         newRow.put("filePath", path.toAbsolutePath().toString());
-        double size = ((Number) attrs.size()).doubleValue();
-        newRow.put("size", size / 1024 / 1024);
-        newRow.put("fileDate", currfileDate);
+        newRow.put("size", size / 1024d / 1024d);
+        newRow.put("fileDate", parseHour(path.getFileName().toString()));
         return newRow;
     }
 
-}
+    private static long hourOf(Date date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        return (calendar.get(Calendar.YEAR) % 100) * 1_000_000L + (calendar.get(Calendar.MONTH) + 1) * 10_000L
+                + calendar.get(Calendar.DAY_OF_MONTH) * 100L + calendar.get(Calendar.HOUR_OF_DAY);
+    }
 
+}
@@ -0,0 +1,136 @@
+package org.v8LogScanner.logs;
+
+import org.v8LogScanner.commonly.Constants;
+import org.v8LogScanner.commonly.ExcpReporting;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Walks the log directories in parallel passing their files to the visitor. The subdirectories are walked
+ * by the own small pool of the walker instead of the common pool of the JVM. Its threads mostly wait
+ * for the file system, so the pool is bounded by WALK_THREADS whatever the number of the process directories.
+ * Listings of the directories are kept between scans and are read again only when the modification time
+ * of the directory changes, so the repeated scan does not list thousands of hour files of the process directories.
+ * Only the sizes of the accepted files are read on every scan.
+ */
+class LogsDirWalker {
+
+    // modification time of the directory changes with the coarse resolution on some file systems,
+    // so the listing taken within this time after the change is read again by the next scan
+    private static final long MTIME_RESOLUTION = 2000;
+
+    private static final int WALK_THREADS = Math.min(8, Constants.scanParallelism);
+
+    private static final Map<Path, Listing> listings = new ConcurrentHashMap<>();
+    private static ForkJoinPool pool = null;
+
+    static void walk(Path path, LogsDirVisitor visitor) {
+        // parallel streams started inside the pool run on its threads
+        pool().invoke(ForkJoinTask.adapt(() -> visit(path, visitor)));
+    }
+
+    static void clearListings() {
+        listings.clear();
+    }
+
+    // PRIVATE
+
+    private static void visit(Path path, LogsDirVisitor visitor) {
+
+        if (!Files.isDirectory(path)) {
+            Path fileName = path.getFileName();
+            if (fileName != null && visitor.acceptFile(fileName.toString()))
+                addFile(path, visitor);
+            return;
+        }
+
+        Listing listing = listing(path);
+        if (listing == null)
+            return;
+
+        if (visitor.acceptDir(path)) {
+            for (String fileName : listing.files) {
+                if (visitor.acceptFile(fileName))
+                    addFile(path.resolve(fileName), visitor);
+            }
+        }
+        listing.dirs.parallelStream().forEach(dir -> visit(path.resolve(dir), visitor));
+    }
+
+    private static synchronized ForkJoinPool pool() {
+
+        if (pool == null) {
+            AtomicInteger threadIds = new AtomicInteger();
+            pool = new ForkJoinPool(WALK_THREADS, forkJoinPool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+                thread.setName("v8LogScanner-walk-" + threadIds.incrementAndGet());
+                return thread;
+            }, null, false);
+        }
+        return pool;
+    }
+
+    private static Listing listing(Path dir) {
+
+        try {
+            long modified = Files.getLastModifiedTime(dir).toMillis();
+            Listing listing = listings.get(dir);
+            if (listing != null && listing.modified == modified && listing.listed - modified > MTIME_RESOLUTION)
+                return listing;
+
+            listing = new Listing(modified, System.currentTimeMillis());
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                for (Path entry : stream) {
+                    String name = entry.getFileName().toString();
+                    if (Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isDirectory())
+                        listing.dirs.add(name);
+                    else
+                        listing.files.add(name);
+                }
+            }
+            listings.put(dir, listing);
+            return listing;
+        } catch (IOException e) {
+            skipped(dir);
+            return null;
+        }
+    }
+
+    private static void addFile(Path file, LogsDirVisitor visitor) {
+        try {
+            visitor.addTableEntry(file, Files.size(file));
+        } catch (IOException e) {
+            skipped(file);
+        }
+    }
+
+    private static void skipped(Path path) {
+        ExcpReporting.logInfo(String.format("Cannot access to the dir or file with path: %s. It skipped.", path));
+    }
+
+    private static class Listing {
+
+        private final long modified;
+        private final long listed;
+        private final List<String> dirs = new ArrayList<>();
+        private final List<String> files = new ArrayList<>();
+
+        private Listing(long modified, long listed) {
+            this.modified = modified;
+            this.listed = listed;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import org.v8LogScanner.commonly.*;
 import org.v8LogScanner.logs.LogsDirVisitor.AcceptedLogTypes;
 import org.v8LogScanner.logsCfg.LogBuilder;
 import org.v8LogScanner.rgx.ScanProfile;
+import org.v8LogScanner.rgx.ValueBloom;
 import org.v8LogScanner.rgx.ScanProfile.DateRanges;
 import org.v8LogScanner.rgx.ScanProfile.LogTypes;
 
@@ -15,6 +16,8 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 public class LogsOperations extends ProcessListener {
 
@@ -36,6 +39,7 @@ public class LogsOperations extends ProcessListener {
 
         String userStartDate = profile.getStartDate();
         String userEndDate = profile.getEndDate();
+        LogCatalog catalog = LogCatalog.getInstance();
 
         for (String fileName : sourceLogPaths) {
 
@@ -50,19 +54,20 @@ public class LogsOperations extends ProcessListener {
             else
                 visitor.acceptLogType(AcceptedLogTypes.ALL);
 
-            try {
-                Files.walkFileTree(Paths.get(fileName), visitor);
-            } catch (IOException e) {
-                ExcpReporting.LogError(LogsOperations.class, e);
-            }
+            LogsDirWalker.walk(Paths.get(fileName), visitor);
             SimpleTable result = visitor.getLogFilesData();
+            int found = result.size();
 
-            // sorting and creating sorted table
+            // files not containing values of the profile filters are skipped by their value filters
+            // and the catalogued files without events of the profile types and time are skipped,
+            // then sorting and creating sorted table
             result = result.
                     stream().
+                    filter(n -> ValueBloom.mayMatch((String) n.get("filePath"), profile.getRgxList())).
+                    filter(n -> catalog.mayMatch((String) n.get("filePath"), profile.getRgxList())).
                     sorted((n1, n2) -> {
-                                Date d1 = (Date) n1.get("fileDate");
-                                Date d2 = (Date) n2.get("fileDate");
+                                Long d1 = (Long) n1.get("fileDate");
+                                Long d2 = (Long) n2.get("fileDate");
                                 return d1.compareTo(d2);
                             }
                     ).collect(
@@ -73,6 +78,10 @@ public class LogsOperations extends ProcessListener {
                     },
                     (n, t) -> n.addAll(t));
 
+            if (result.size() < found)
+                processingInfo.add(String.format("%s files skipped by value filters and the catalog",
+                        found - result.size()));
+
             saveProcessingInfo(result);
 
             invoke(getProcessingInfo());
@@ -81,10 +90,33 @@ public class LogsOperations extends ProcessListener {
         }
 
         processingInfo.add(getTotalSizeDescr());
+        processingInfo.add(catalog.estimate(getLogFiles()));
 
         return getLogFiles();
     }
 
+    /**
+     * Selects the files of the profile from the files read once for several profiles with the same log paths
+     * and dates: the files in the directories of its log type passed by its value filters and the catalog
+     */
+    public static List<String> selectLogFiles(List<String> logFiles, ScanProfile profile) {
+
+        Pattern dirPattern = Pattern.compile(getDirPattern(profile.getLogType()),
+                Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
+        LogCatalog catalog = LogCatalog.getInstance();
+
+        // the log path set as the file is accepted whatever its directory
+        return logFiles.stream().
+                filter(n -> {
+                    Path dir = Paths.get(n).getParent();
+                    return profile.getLogPaths().contains(n) || dir == null || dir.getFileName() == null
+                            || dirPattern.matcher(dir.getFileName().toString()).matches();
+                }).
+                filter(n -> ValueBloom.mayMatch(n, profile.getRgxList())).
+                filter(n -> catalog.mayMatch(n, profile.getRgxList())).
+                collect(Collectors.toList());
+    }
+
     public ArrayList<String> getLogFiles() {
         return logFiles.unloadColumn("filePath", new ArrayList<String>());
     }
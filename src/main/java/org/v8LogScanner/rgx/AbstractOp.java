@@ -1,17 +1,24 @@
 package org.v8LogScanner.rgx;
 //IMPLEMENTS ELEMENT OF STRATEGY PATTERN
 
+import org.v8LogScanner.commonly.Filter;
 import org.v8LogScanner.commonly.Filter.ComparisonTypes;
 import org.v8LogScanner.commonly.ProcessListener;
 import org.v8LogScanner.rgx.RegExp.PropTypes;
 import org.v8LogScanner.rgx.ScanProfile.RgxOpTypes;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 public abstract class AbstractOp extends ProcessListener implements IRgxOp {
 
@@ -21,29 +28,83 @@ public abstract class AbstractOp extends ProcessListener implements IRgxOp {
     protected ConcurrentMap<RegExp, List<String>> cleanPropsRgx = new ConcurrentHashMap<>();
     protected ConcurrentMap<RegExp, ConcurrentMap<PropTypes, List<String>>> integerFilters = new ConcurrentHashMap<>();
     protected ConcurrentMap<RegExp, ConcurrentMap<PropTypes, ComparisonTypes>> integerCompTypes = new ConcurrentHashMap<>();
+    // Event filter elements which are plain names and can be compared with the event column
+    private static final Pattern EVENT_NAME = Pattern.compile("\\w+");
+    // Filter values without regex syntax which can be compared with the value columns
+    private static final Pattern PLAIN_VALUE = Pattern.compile("[^,\\\\\\[\\](){}.*+?^$|]+");
     // Service variables
     protected LinkedBlockingQueue<String> processingInfo = new LinkedBlockingQueue<>();
     protected long inSize = 0;
     protected long outSize = 0;
+    // Result cache variables
+    ResultCache resultCache = null;
+    // when not null the op adds the partial result of the current file into it
+    Map<String, List<String>> filePartial = null;
+    // Directory of the column store, null if log files are parsed on every scan
+    String columnStoreDir = null;
+    // Limits of the devices reading log files ahead of the scan, null if files are read by the scan itself
+    String deviceLimits = null;
+    // Throttled mode: kilobytes read per second and threads processing events, 0 means no restriction
+    int throttleRate = 0;
+    int throttleThreads = 0;
+    // Threads of the dedicated pool of the scan, 0 means the pool shared by all scans
+    int parallelism = 0;
+    // Whether the events of the current batch are processed in parallel, chosen by the measured throughput
+    boolean parallelBatches = true;
+    // Seconds after which the scan is cancelled, 0 means no deadline
+    int scanTimeout = 0;
+    // Token of the running scan checked by the parallel stages of the op
+    ScanCancellation cancellation = new ScanCancellation();
 
     public static IRgxOp buildRgxOp(ScanProfile profile) {
 
         RgxOpTypes rgxOp = profile.getRgxOp();
 
+        AbstractOp op;
         switch (rgxOp) {
             case CURSOR_OP:
-                return new CursorOp(profile);
+                op = new CursorOp(profile);
+                break;
             case HEAP_OP:
-                return new HeapOp(profile);
+                op = new HeapOp(profile);
+                break;
             case USER_OP:
-                return new UserScanOp(profile);
+                op = new UserScanOp(profile);
+                break;
             default:
-                return new CursorOp(profile);
+                op = new CursorOp(profile);
         }
+
+        String cacheDir = profile.getCacheDir();
+        if (cacheDir != null && !cacheDir.isEmpty())
+            op.resultCache = new ResultCache(cacheDir, profile);
+
+        String columnStoreDir = profile.getColumnStoreDir();
+        if (columnStoreDir != null && !columnStoreDir.isEmpty())
+            op.columnStoreDir = columnStoreDir;
+
+        String deviceLimits = profile.getDeviceLimits();
+        if (deviceLimits != null && !deviceLimits.isEmpty())
+            op.deviceLimits = deviceLimits;
+
+        op.throttleRate = Math.max(profile.getThrottleRate(), 0);
+        op.throttleThreads = Math.max(profile.getThrottleThreads(), 0);
+        op.parallelism = Math.max(profile.getParallelism(), 0);
+        op.scanTimeout = Math.max(profile.getScanTimeout(), 0);
+
+        return op;
     }
 
     // INTERFACE
 
+    public void execute(List<String> logFiles) {
+        execute(logFiles, new ScanCancellation(scanTimeout * 1000L));
+    }
+
+    public void execute(List<String> logFiles, ScanCancellation cancellation) {
+        BatchScan.scan(Collections.singletonList(this), Collections.singletonList(logFiles), cancellation);
+    }
+
     public final ArrayList<String> getProcessingInfo() {
 
         ArrayList<String> result = new ArrayList<>();
@@ -52,6 +113,130 @@ public abstract class AbstractOp extends ProcessListener implements IRgxOp {
         return result;
     }
 
+    // SCANNING PHASES
+    // Ops do not read log files themselves. The BatchScan reads each file once
+    // and passes every batch of events to all ops scanning this file
+
+    abstract void beginScan(List<String> logFiles);
+
+    void beginFile(int fileId) {
+    }
+
+    /**
+     * @param reader - reader positioned at the current batch of events
+     * @param fileId - index of the file in the list passed to the beginScan()
+     */
+    abstract void scanBatch(RgxReader reader, int fileId);
+
+    abstract void endFile(int fileId);
+
+    abstract void endScan();
+
+    // drops the partial result of the cancelled scan and releases its resources
+    abstract void cancelScan();
+
+    // whether the op needs byte offsets of events tracked by the reader
+    boolean tracksOffsets() {
+        return false;
+    }
+
+    // whether partial results of files can be kept in the result cache
+    boolean cacheable() {
+        return false;
+    }
+
+    /**
+     * Merges the cached partial result of the file into the op instead of scanning the file.
+     * It is called only for the cacheable op.
+     */
+    abstract void restoreFile(int fileId, Map<String, List<String>> partial);
+
+    // stream of the events of the batch, sequential when the batch is cheaper to process in one thread.
+    // Events are skipped as soon as the scan is cancelled
+    <T> Stream<T> batchStream(Collection<T> events) {
+        Stream<T> stream = parallelBatches ? events.parallelStream() : events.stream();
+        return stream.filter(n -> !cancellation.isCancelled());
+    }
+
+    IntStream batchRange(int size) {
+        IntStream range = IntStream.range(0, size);
+        return (parallelBatches ? range.parallel() : range).filter(n -> !cancellation.isCancelled());
+    }
+
+    /**
+     * Marks events of the store which can match any of the compiled RegExps.
+     * Only the event name, the duration and the Usr, ConnectID, SessionID columns are checked,
+     * the candidates are matched against the patterns as usual so the result does not change.
+     *
+     * @return null if every event of the store is the candidate
+     */
+    boolean[] candidates(ColumnStore store) {
+
+        if (eventPatterns.isEmpty())
+            return null;
+
+        boolean[] result = new boolean[store.size()];
+        boolean[] matched = new boolean[store.size()];
+
+        for (RegExp rgx : eventPatterns.keySet()) {
+
+            Arrays.fill(matched, true);
+            boolean restricted = false;
+
+            List<String> names = rgx.getFilter(PropTypes.Event).getElements();
+            if (!names.isEmpty() && names.stream().allMatch(name -> EVENT_NAME.matcher(name).matches())) {
+                store.matchEvents(names, matched);
+                restricted = true;
+            }
+
+            List<String> durations = integerFilters.get(rgx).get(PropTypes.Duration);
+            if (durations != null) {
+                store.filterDurations(durations, integerCompTypes.get(rgx).get(PropTypes.Duration), matched);
+                restricted = true;
+            }
+
+            for (Map.Entry<PropTypes, Filter> filter : rgx.getFilters().entrySet()) {
+                List<String> filterVals = filter.getValue().getElements();
+                if (!ColumnStore.isValueProp(filter.getKey()) || filterVals.isEmpty()
+                        || !filterVals.stream().allMatch(val -> PLAIN_VALUE.matcher(val).matches()))
+                    continue;
+                store.matchValues(filter.getKey(), filterVals, matched);
+                restricted = true;
+            }
+
+            if (!restricted)
+                return null;
+
+            for (int i = 0; i < matched.length; i++)
+                result[i] |= matched[i];
+        }
+        return result;
+    }
+
+    /**
+     * Minutes of the hour which events can match the time filters of all compiled RegExps
+     *
+     * @return array of the first and the last minutes (inclusive) or null if any RegExp is not restricted by time
+     */
+    int[] timeWindow() {
+
+        if (eventPatterns.isEmpty())
+            return null;
+
+        int first = Integer.MAX_VALUE;
+        int last = -1;
+        for (RegExp rgx : eventPatterns.keySet()) {
+
+            int[] window = TimeIndex.minuteWindow(integerFilters.get(rgx).get(PropTypes.Time),
+                    integerCompTypes.get(rgx).get(PropTypes.Time));
+            if (window == null)
+                return null;
+            first = Math.min(first, window[0]);
+            last = Math.max(last, window[1]);
+        }
+        return new int[]{first, last};
+    }
+
     // PRIVATE
 
     final void precompile(List<RegExp> rgxList) {
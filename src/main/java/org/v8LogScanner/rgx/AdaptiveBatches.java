@@ -0,0 +1,124 @@
+package org.v8LogScanner.rgx;
+
+import org.v8LogScanner.commonly.Constants;
+
+/**
+ * Tunes the batches of the scan by the throughput measured at run time. Batches are measured in windows
+ * of several batches of the same settings. The batch size climbs in the direction raising the events
+ * per second and turns back when they fall. The ops process the batch in parallel or sequentially by
+ * the lower cost of the event measured in each mode, the other mode is probed again from time to time
+ * as the cost of filters changes with the files. The buffer of the reader holds several dozens of
+ * the average events, so the file is not read by small portions.
+ * The batch and buffer sizes are read by the splitting thread, other methods are called by the scan.
+ */
+class AdaptiveBatches {
+
+    static final int MIN_BATCH = 1000;
+    static final int MAX_BATCH = 100_000;
+    static final int MIN_BUFFER = 16 * 1024;
+    static final int MAX_BUFFER = 1024 * 1024;
+    // average events held by the buffer of the reader
+    private static final int BUFFER_EVENTS = 64;
+    // batches measured with the same settings
+    static final int WINDOW = 4;
+    // windows after which the other mode of processing is probed
+    private static final int PROBE_PERIOD = 8;
+
+    private volatile int batchSize = Constants.logEventsCount;
+    private volatile int bufferSize = MIN_BUFFER;
+    private boolean parallel = true;
+    // smoothed nanos of processing the event sequentially and in parallel, 0 until measured
+    private final double[] costs = new double[2];
+    private boolean growing = true;
+    private double lastRate = 0;
+    private boolean lastParallel = true;
+    private int windows = 0;
+    private int changes = 0;
+
+    private int windowBatches = 0;
+    private long windowEvents = 0;
+    private long windowNanos = 0;
+    private long windowOpsNanos = 0;
+
+    private long totalEvents = 0;
+    private long totalChars = 0;
+    private long totalNanos = 0;
+
+    int batchSize() {
+        return batchSize;
+    }
+
+    int bufferSize() {
+        return bufferSize;
+    }
+
+    // whether the ops process the next batch in parallel
+    boolean parallel() {
+        return parallel;
+    }
+
+    /**
+     * Records the measured batch
+     *
+     * @param chars    - chars of the events of the batch
+     * @param nanos    - time from the request of the batch to the end of its processing
+     * @param opsNanos - time of processing the batch by the ops
+     */
+    void record(int events, long chars, long nanos, long opsNanos) {
+
+        if (events == 0)
+            return;
+
+        totalEvents += events;
+        totalChars += chars;
+        totalNanos += nanos;
+        bufferSize = (int) Math.max(MIN_BUFFER, Math.min(MAX_BUFFER, totalChars / totalEvents * BUFFER_EVENTS));
+
+        windowEvents += events;
+        windowNanos += nanos;
+        windowOpsNanos += opsNanos;
+        if (++windowBatches < WINDOW)
+            return;
+
+        int mode = parallel ? 1 : 0;
+        double cost = (double) windowOpsNanos / windowEvents;
+        costs[mode] = costs[mode] == 0 ? cost : (costs[mode] + cost) / 2;
+
+        // sizes are compared only between the windows processed in the same mode
+        double rate = (double) windowEvents / Math.max(windowNanos, 1);
+        if (parallel == lastParallel) {
+            if (rate < lastRate)
+                growing = !growing;
+            int size = growing ? Math.min(batchSize * 2, MAX_BATCH) : Math.max(batchSize / 2, MIN_BATCH);
+            if (size != batchSize) {
+                batchSize = size;
+                changes++;
+            }
+        }
+        lastRate = rate;
+        lastParallel = parallel;
+
+        windows++;
+        boolean next;
+        if (costs[1 - mode] == 0 || windows % PROBE_PERIOD == 0)
+            next = !parallel;
+        else
+            next = costs[1] < costs[0];
+        if (next != parallel) {
+            parallel = next;
+            changes++;
+        }
+
+        windowBatches = 0;
+        windowEvents = 0;
+        windowNanos = 0;
+        windowOpsNanos = 0;
+    }
+
+    String describe() {
+        return String.format("adaptive batches: %s events, buffer %s chars, %s processing "
+                        + "(sequential %.0f ns, parallel %.0f ns per event), %s events/s, %s changes",
+                batchSize, bufferSize, costs[1] < costs[0] || costs[0] == 0 ? "parallel" : "sequential",
+                costs[0], costs[1], totalNanos == 0 ? 0 : totalEvents * 1_000_000_000L / totalNanos, changes);
+    }
+}
@@ -0,0 +1,375 @@
+package org.v8LogScanner.rgx;
+
+import org.v8LogScanner.commonly.Constants;
+import org.v8LogScanner.commonly.ExcpReporting;
+import org.v8LogScanner.commonly.ProcessEvent;
+import org.v8LogScanner.logs.LogCatalog;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executes several scan profiles in the single pass over log files.
+ * Each log file is read and split into events once and every batch of events
+ * is passed to the compiled filters of each op scanning this file.
+ * Every profile keeps its own op with its own selector so the results are selected separately.
+ */
+public class BatchScan {
+
+    // units of the time key mmssffffff
+    private static final long MINUTE_KEY = 100_000_000L;
+    private static final long SECOND_KEY = 1_000_000L;
+    // batches of events split ahead of the ops
+    private static final int PIPELINE_DEPTH = 2;
+
+    private final List<IRgxOp> ops = new ArrayList<>();
+    private final List<List<String>> opFiles = new ArrayList<>();
+
+    /**
+     * Adds the profile to the batch
+     *
+     * @param logFiles - log files of the profile
+     * @return op executing the profile, it has the result after the execute() method is finished
+     */
+    public IRgxOp add(ScanProfile profile, List<String> logFiles) {
+        IRgxOp rgxOp = AbstractOp.buildRgxOp(profile);
+        ops.add(rgxOp);
+        opFiles.add(logFiles);
+        return rgxOp;
+    }
+
+    public List<IRgxOp> getOps() {
+        return ops;
+    }
+
+    public void addListener(ProcessEvent e) {
+        ops.forEach(rgxOp -> rgxOp.addListener(e));
+    }
+
+    public void execute() {
+        int timeout = 0;
+        for (IRgxOp rgxOp : ops) {
+            int opTimeout = ((AbstractOp) rgxOp).scanTimeout;
+            if (opTimeout > 0)
+                timeout = timeout == 0 ? opTimeout : Math.min(timeout, opTimeout);
+        }
+        execute(new ScanCancellation(timeout * 1000L));
+    }
+
+    public void execute(ScanCancellation cancellation) {
+        List<AbstractOp> abstractOps = new ArrayList<>();
+        ops.forEach(rgxOp -> abstractOps.add((AbstractOp) rgxOp));
+        scan(abstractOps, opFiles, cancellation);
+    }
+
+    static void scan(List<AbstractOp> ops, List<List<String>> opFiles, ScanCancellation cancellation) {
+
+        // the profile sets the dedicated pool of the scan, the throttled mode restricts its threads
+        int parallelism = 0;
+        int threads = 0;
+        for (AbstractOp op : ops) {
+            if (parallelism == 0)
+                parallelism = op.parallelism;
+            if (threads == 0)
+                threads = op.throttleThreads;
+        }
+        if (threads > 0)
+            parallelism = parallelism == 0 ? threads : Math.min(parallelism, threads);
+        ops.forEach(op -> op.cancellation = cancellation);
+
+        try (ScanPool pool = ScanPool.of(parallelism)) {
+            pool.run(() -> scanFiles(ops, opFiles, pool, cancellation), cancellation);
+            if (!ops.isEmpty())
+                ops.get(0).saveProcessingInfo(pool.describe());
+        }
+    }
+
+    private static void scanFiles(List<AbstractOp> ops, List<List<String>> opFiles, ScanPool pool,
+                                  ScanCancellation cancellation) {
+
+        IRgxOp.calc.start();
+
+        LogCatalog catalog = LogCatalog.getInstance();
+        LinkedHashSet<String> allFiles = new LinkedHashSet<>();
+        List<Map<String, Integer>> fileIds = new ArrayList<>();
+        boolean trackOffsets = false;
+
+        for (int k = 0; k < ops.size(); k++) {
+            List<String> logFiles = opFiles.get(k);
+            Map<String, Integer> ids = new HashMap<>();
+            for (int i = logFiles.size() - 1; i >= 0; i--)
+                ids.put(logFiles.get(i), i);
+            fileIds.add(ids);
+            allFiles.addAll(logFiles);
+
+            ops.get(k).beginScan(logFiles);
+            trackOffsets |= ops.get(k).tracksOffsets();
+        }
+
+        Throttle throttle = null;
+        for (AbstractOp op : ops) {
+            if (op.throttleRate > 0) {
+                throttle = new Throttle(op.throttleRate * 1024L, pool::activeThreads);
+                break;
+            }
+        }
+
+        // files read fully by all ops are read ahead by the threads of their devices
+        DeviceScheduler scheduler = null;
+        for (AbstractOp op : ops) {
+            if (op.deviceLimits != null) {
+                scheduler = new DeviceScheduler(op.deviceLimits, readInFull(ops, fileIds, allFiles), throttle);
+                op.processingInfo.addAll(scheduler.describe());
+                break;
+            }
+        }
+
+        // sizes of the batches and the mode of processing them are chosen by the measured throughput
+        AdaptiveBatches adaptive = new AdaptiveBatches();
+
+        ExecutorService splitting = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "v8LogScanner-split");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            for (String logFile : allFiles) {
+
+                if (cancellation.isCancelled())
+                    break;
+
+                int[] ids = new int[ops.size()];
+                boolean read = false;
+                String storeDir = null;
+                for (int k = 0; k < ops.size(); k++) {
+                    AbstractOp op = ops.get(k);
+                    ids[k] = fileIds.get(k).getOrDefault(logFile, -1);
+                    if (ids[k] < 0)
+                        continue;
+
+                    boolean cached = op.resultCache != null && op.cacheable();
+                    Map<String, List<String>> partial = cached ? op.resultCache.load(logFile) : null;
+                    if (partial != null) {
+                        // the file has not been changed since the last scan
+                        op.restoreFile(ids[k], partial);
+                        ids[k] = -1;
+                        continue;
+                    }
+                    if (cached)
+                        op.filePartial = new HashMap<>();
+                    op.beginFile(ids[k]);
+                    read = true;
+                    if (storeDir == null)
+                        storeDir = op.columnStoreDir;
+                }
+
+                if (!read) {
+                    if (scheduler != null)
+                        scheduler.skip(logFile);
+                    continue;
+                }
+
+                boolean failed = false;
+                TimeIndex timeIndex = null;
+                ValueBloom valueBloom = null;
+                LogCatalog.Entry catalogEntry = null;
+                String stamp = null;
+                try (RgxReader reader = openReader(logFile, storeDir, scheduler, throttle, ops, ids)) {
+
+                    // the stamp is taken before reading, so the results of the file growing during the scan
+                    // are not trusted by the next scan
+                    stamp = ResultCache.fileStamp(logFile);
+
+                    if (storeDir == null) {
+                        TimeIndex index = TimeIndex.load(logFile);
+                        int[] window = timeWindow(ops, ids);
+                        if (index != null && window != null) {
+                            long[] range = index.range(window[0], window[1]);
+                            reader.range(range == null ? 0 : range[0], range == null ? 0 : range[1]);
+                        } else if (window != null && RgxOpManager.getFileHour(logFile) != 0) {
+                            // only the hour files of the tech log are sure to be written in time order,
+                            // events of different threads may be slightly out of order
+                            // so the bounds found by the binary search are widened by a second
+                            reader.seek(Math.max(window[0] * MINUTE_KEY - SECOND_KEY, 0),
+                                    (window[1] + 1) * MINUTE_KEY + SECOND_KEY);
+                        } else {
+                            // the index, the filter and the catalog entry are built while the whole file is read
+                            if (index == null) {
+                                timeIndex = new TimeIndex();
+                                reader.trackOffsets();
+                            }
+                            if (ValueBloom.load(logFile) == null)
+                                valueBloom = new ValueBloom();
+                            if (catalog.get(logFile) == null)
+                                catalogEntry = new LogCatalog.Entry(logFile);
+                        }
+                    }
+
+                    if (trackOffsets)
+                        reader.trackOffsets();
+
+                    // the next batches are read and split while the ops process the current one
+                    try (RgxReader pipeline = new PipelineReader(reader, splitting, PIPELINE_DEPTH, adaptive, cancellation)) {
+                        long started = System.nanoTime();
+                        while (pipeline.next()) {
+                            long processed = System.nanoTime();
+                            List<String> events = pipeline.getResult();
+                            if (timeIndex != null) {
+                                for (int i = 0; i < events.size(); i++)
+                                    timeIndex.add(events.get(i), pipeline.getOffset(i), pipeline.getLength(i));
+                            }
+                            if (valueBloom != null)
+                                events.forEach(valueBloom::add);
+                            if (catalogEntry != null)
+                                events.forEach(catalogEntry::add);
+                            boolean parallel = adaptive.parallel();
+                            for (int k = 0; k < ops.size(); k++) {
+                                if (ids[k] >= 0) {
+                                    ops.get(k).parallelBatches = parallel;
+                                    ops.get(k).scanBatch(pipeline, ids[k]);
+                                }
+                            }
+                            pool.sample();
+
+                            long chars = 0;
+                            for (String event : events)
+                                chars += event.length();
+                            long now = System.nanoTime();
+                            adaptive.record(events.size(), chars, now - started, now - processed);
+                            started = now;
+                        }
+                    }
+                } catch (IOException e) {
+                    failed = true;
+                    ExcpReporting.LogError(BatchScan.class, e);
+                }
+
+                // nothing of the partly read file is saved
+                if (cancellation.isCancelled())
+                    break;
+
+                if (timeIndex != null && !failed)
+                    timeIndex.save(logFile, stamp);
+                if (valueBloom != null && !failed)
+                    valueBloom.save(logFile, stamp);
+                if (catalogEntry != null && !failed)
+                    catalog.put(catalogEntry);
+
+                for (int k = 0; k < ops.size(); k++) {
+                    AbstractOp op = ops.get(k);
+                    if (ids[k] < 0)
+                        continue;
+                    op.endFile(ids[k]);
+                    // partial result of the file read with errors is not cached
+                    if (op.filePartial != null) {
+                        if (!failed)
+                            op.resultCache.save(logFile, stamp, op.filePartial);
+                        op.filePartial = null;
+                    }
+                }
+            }
+        } finally {
+            if (scheduler != null)
+                scheduler.close();
+            splitting.shutdown();
+        }
+
+        if (cancellation.isCancelled()) {
+            ops.forEach(op -> {
+                op.filePartial = null;
+                op.cancelScan();
+            });
+            catalog.save();
+            if (!ops.isEmpty())
+                ops.get(0).saveProcessingInfo(String.format("Scan cancelled: %s", cancellation.reason()));
+            IRgxOp.calc.end();
+            return;
+        }
+
+        ops.forEach(AbstractOp::endScan);
+        catalog.save();
+        if (!ops.isEmpty())
+            ops.get(0).saveProcessingInfo(adaptive.describe());
+        if (throttle != null)
+            ops.get(0).saveProcessingInfo(throttle.describe());
+
+        IRgxOp.calc.end();
+    }
+
+    // Union of the time windows of the ops reading the file, null if any of them is not restricted by time
+    private static int[] timeWindow(List<AbstractOp> ops, int[] ids) {
+
+        int[] result = null;
+        for (int k = 0; k < ops.size(); k++) {
+            if (ids[k] < 0)
+                continue;
+            int[] window = ops.get(k).timeWindow();
+            if (window == null)
+                return null;
+            result = result == null ? window
+                    : new int[]{Math.min(result[0], window[0]), Math.max(result[1], window[1])};
+        }
+        return result;
+    }
+
+    // Files which are not restored from the result cache, not read from the column store
+    // and not restricted by time, so they are read fully by the scan
+    private static List<String> readInFull(List<AbstractOp> ops, List<Map<String, Integer>> fileIds,
+                                           Collection<String> allFiles) {
+
+        List<String> result = new ArrayList<>();
+        for (String logFile : allFiles) {
+            int[] ids = new int[ops.size()];
+            boolean full = true;
+            for (int k = 0; k < ops.size() && full; k++) {
+                AbstractOp op = ops.get(k);
+                ids[k] = fileIds.get(k).getOrDefault(logFile, -1);
+                if (ids[k] >= 0)
+                    full = (op.resultCache == null || !op.cacheable()) && op.columnStoreDir == null;
+            }
+            if (full && timeWindow(ops, ids) == null)
+                result.add(logFile);
+        }
+        return result;
+    }
+
+    // Reads the log file itself, the bytes of the file read ahead by its device or only the candidate events
+    // of its column store
+    private static RgxReader openReader(String logFile, String storeDir, DeviceScheduler scheduler,
+                                        Throttle throttle, List<AbstractOp> ops, int[] ids) throws IOException {
+
+        if (storeDir == null) {
+            RgxReader reader = new RgxReader(logFile, Constants.logsCharset, Constants.logEventsCount);
+            ReadableByteChannel channel = scheduler == null ? null : scheduler.channel(logFile);
+            // the bytes read ahead are throttled by the threads of the device
+            if (channel != null)
+                return reader.source(channel);
+            return throttle == null ? reader : reader.throttle(throttle);
+        }
+
+        ColumnStore store = ColumnStore.open(storeDir, logFile);
+        boolean[] candidates = new boolean[store.size()];
+        for (int k = 0; k < ops.size(); k++) {
+            if (ids[k] < 0)
+                continue;
+            boolean[] opCandidates = ops.get(k).candidates(store);
+            if (opCandidates == null) {
+                candidates = null;
+                break;
+            }
+            for (int i = 0; i < candidates.length; i++)
+                candidates[i] |= opCandidates[i];
+        }
+        RgxReader reader = new StoreReader(store, candidates, Constants.logEventsCount);
+        return throttle == null ? reader : reader.throttle(throttle);
+    }
+}
@@ -0,0 +1,394 @@
+package org.v8LogScanner.rgx;
+
+import org.v8LogScanner.commonly.Constants;
+import org.v8LogScanner.commonly.Filter.ComparisonTypes;
+import org.v8LogScanner.rgx.RegExp.PropTypes;
+
+import java.io.*;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar copy of the single log file. The log is split into events and parsed once,
+ * then the columns are kept in the store directory and loaded instead of parsing the log text again:
+ * absolute timestamp, duration, dictionary encoded event name, process, user, connectID and SessionID
+ * and the byte offset with the byte length of the event text in the log file. The values of user,
+ * connectID and SessionID also have the inverted index to find their events without scanning the columns.
+ * The store is rebuilt when the size or the modification time of the log file changes.
+ */
+public class ColumnStore {
+
+    // changes when the format of the store file changes
+    private static final String FORMAT_VERSION = "2";
+
+    // properties which values are kept in the dictionary encoded columns
+    private static final PropTypes[] VALUE_PROPS = {PropTypes.Usr, PropTypes.ConnectID, PropTypes.SessionID};
+    private static final String[] VALUE_NAMES = {"Usr=", "t:connectID=", "SessionID="};
+
+    private final String logFile;
+    private int size = 0;
+    private long[] times = new long[16];
+    private long[] durations = new long[16];
+    private int[] events = new int[16];
+    private int[] processes = new int[16];
+    // codes of the values of VALUE_PROPS
+    private int[][] values = {new int[16], new int[16], new int[16]};
+    // bit of the value prop is set when the prop name occurs in the event more than once
+    private byte[] repeats = new byte[16];
+    private long[] offsets = new long[16];
+    private int[] lengths = new int[16];
+
+    private final Dictionary eventNames = new Dictionary();
+    private final Dictionary processNames = new Dictionary();
+    private final Dictionary[] valueNames = {new Dictionary(), new Dictionary(), new Dictionary()};
+    // inverted index of the value props: event indexes of each value code, built on demand
+    private final int[][][] postings = new int[VALUE_PROPS.length][][];
+
+    private ColumnStore(String logFile) {
+        this.logFile = logFile;
+    }
+
+    /**
+     * Loads columns of the log file from the store directory or ingests the log file if it is
+     * not stored yet or has been changed since the ingestion
+     */
+    public static ColumnStore open(String storeDir, String logFile) throws IOException {
+
+        Path storeFile = Paths.get(storeDir, ResultCache.hash(
+                Paths.get(logFile).toAbsolutePath().normalize().toString()) + ".cols");
+        String stamp = FORMAT_VERSION + "|" + ResultCache.fileStamp(logFile);
+
+        if (Files.exists(storeFile)) {
+            ColumnStore store = load(storeFile, stamp, logFile);
+            if (store != null)
+                return store;
+        }
+
+        ColumnStore store = ingest(logFile);
+        Files.createDirectories(storeFile.getParent());
+        store.save(storeFile, stamp);
+        return store;
+    }
+
+    public static ColumnStore ingest(String logFile) throws IOException {
+
+        ColumnStore store = new ColumnStore(logFile);
+        long fileHour = RgxOpManager.getFileHour(logFile);
+
+        try (RgxReader reader = new RgxReader(logFile, Constants.logsCharset, Constants.logEventsCount)) {
+            reader.trackOffsets();
+            while (reader.next()) {
+                ArrayList<String> result = reader.getResult();
+                for (int i = 0; i < result.size(); i++)
+                    store.add(result.get(i), fileHour, reader.getOffset(i), reader.getLength(i));
+            }
+        }
+        return store;
+    }
+
+    public String getLogFile() {
+        return logFile;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long time(int index) {
+        return times[index];
+    }
+
+    public long duration(int index) {
+        return durations[index];
+    }
+
+    public long offset(int index) {
+        return offsets[index];
+    }
+
+    public int length(int index) {
+        return lengths[index];
+    }
+
+    public String event(int index) {
+        return eventNames.get(events[index]);
+    }
+
+    public String process(int index) {
+        return processNames.get(processes[index]);
+    }
+
+    /**
+     * Value of the Usr, ConnectID or SessionID prop of the event, empty string if the event has no such prop
+     */
+    public String value(PropTypes prop, int index) {
+        int column = valueColumn(prop);
+        return valueNames[column].get(values[column][index]);
+    }
+
+    public static boolean isValueProp(PropTypes prop) {
+        return Arrays.asList(VALUE_PROPS).contains(prop);
+    }
+
+    /**
+     * Unmarks events without one of the names. The names are compared once with the dictionary
+     * and the events are checked by their int codes.
+     */
+    public void matchEvents(List<String> names, boolean[] matched) {
+
+        boolean[] codes = new boolean[eventNames.size()];
+        for (String name : names) {
+            int code = eventNames.find(name);
+            if (code >= 0)
+                codes[code] = true;
+        }
+        for (int i = 0; i < size; i++)
+            matched[i] &= codes[events[i]];
+    }
+
+    /**
+     * Unmarks events which value of the prop does not start with one of the filter values.
+     * Matching events are taken from the posting lists of the dictionary values. Events having
+     * the prop name more than once stay marked as the pattern can find the value in any of them.
+     */
+    public void matchValues(PropTypes prop, List<String> filterVals, boolean[] matched) {
+
+        int column = valueColumn(prop);
+        int[][] lists = postings(column);
+        Dictionary dictionary = valueNames[column];
+        byte bit = (byte) (1 << column);
+
+        boolean[] found = new boolean[size];
+        for (int code = 0; code < dictionary.size(); code++) {
+            String value = dictionary.get(code);
+            if (value.isEmpty() || filterVals.stream().noneMatch(value::startsWith))
+                continue;
+            for (int index : lists[code])
+                found[index] = true;
+        }
+        for (int i = 0; i < size; i++)
+            matched[i] &= found[i] || (repeats[i] & bit) != 0;
+    }
+
+    /**
+     * Unmarks events which duration does not pass the integer filter
+     */
+    public void filterDurations(List<String> filterVals, ComparisonTypes compType, boolean[] matched) {
+        for (int i = 0; i < size; i++) {
+            if (matched[i])
+                matched[i] = RgxOpManager.MatchesIntFilter(
+                        BigInteger.valueOf(durations[i]), filterVals, compType);
+        }
+    }
+
+    // PRIVATE
+
+    private void add(String text, long fileHour, long offset, int length) {
+
+        if (size == times.length) {
+            int newSize = size * 2;
+            times = Arrays.copyOf(times, newSize);
+            durations = Arrays.copyOf(durations, newSize);
+            events = Arrays.copyOf(events, newSize);
+            processes = Arrays.copyOf(processes, newSize);
+            for (int column = 0; column < values.length; column++)
+                values[column] = Arrays.copyOf(values[column], newSize);
+            repeats = Arrays.copyOf(repeats, newSize);
+            offsets = Arrays.copyOf(offsets, newSize);
+            lengths = Arrays.copyOf(lengths, newSize);
+        }
+
+        times[size] = RgxOpManager.getTimestamp(text, fileHour);
+        durations[size] = RgxOpManager.getDuration(text).longValue();
+        events[size] = eventNames.codeOf(RgxOpManager.getEventName(text));
+        processes[size] = processNames.codeOf(propValue(text, ",process="));
+        for (int column = 0; column < values.length; column++) {
+            String name = VALUE_NAMES[column];
+            values[column][size] = valueNames[column].codeOf(propValue(text, name));
+            int first = text.indexOf(name);
+            if (first >= 0 && text.indexOf(name, first + 1) >= 0)
+                repeats[size] |= 1 << column;
+        }
+        offsets[size] = offset;
+        lengths[size] = length;
+        size++;
+    }
+
+    private static String propValue(String text, String prop) {
+        int start = text.indexOf(prop);
+        if (start < 0)
+            return "";
+        start += prop.length();
+        int end = text.indexOf(',', start);
+        return end < 0 ? text.substring(start) : text.substring(start, end);
+    }
+
+    private void save(Path storeFile, String stamp) throws IOException {
+
+        Path tmp = Files.createTempFile(storeFile.getParent(), "cols", ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp.toFile()), 1024 * 64))) {
+            out.writeUTF(stamp);
+            out.writeInt(size);
+            eventNames.write(out);
+            processNames.write(out);
+            for (Dictionary dictionary : valueNames)
+                dictionary.write(out);
+            // each column is written as the contiguous block
+            writeLongs(out, times, size);
+            writeLongs(out, durations, size);
+            writeInts(out, events, size);
+            writeInts(out, processes, size);
+            for (int[] column : values)
+                writeInts(out, column, size);
+            out.write(repeats, 0, size);
+            writeLongs(out, offsets, size);
+            writeInts(out, lengths, size);
+        }
+        Files.move(tmp, storeFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // Returns null if the store was built for another version of the log file
+    private static ColumnStore load(Path storeFile, String stamp, String logFile) throws IOException {
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(storeFile.toFile()), 1024 * 64))) {
+
+            if (!in.readUTF().equals(stamp))
+                return null;
+
+            ColumnStore store = new ColumnStore(logFile);
+            int size = in.readInt();
+            store.eventNames.read(in);
+            store.processNames.read(in);
+            for (Dictionary dictionary : store.valueNames)
+                dictionary.read(in);
+
+            store.size = size;
+            store.times = readLongs(in, size);
+            store.durations = readLongs(in, size);
+            store.events = readInts(in, size);
+            store.processes = readInts(in, size);
+            for (int column = 0; column < store.values.length; column++)
+                store.values[column] = readInts(in, size);
+            store.repeats = new byte[Math.max(size, 1)];
+            in.readFully(store.repeats, 0, size);
+            store.offsets = readLongs(in, size);
+            store.lengths = readInts(in, size);
+            return store;
+        }
+    }
+
+    private static int valueColumn(PropTypes prop) {
+        int column = Arrays.asList(VALUE_PROPS).indexOf(prop);
+        if (column < 0)
+            throw new IllegalArgumentException("Values of the prop are not stored: " + prop);
+        return column;
+    }
+
+    // Counting sort of the event indexes by the value codes
+    private int[][] postings(int column) {
+
+        if (postings[column] != null)
+            return postings[column];
+
+        int[] codes = values[column];
+        int[] counts = new int[valueNames[column].size()];
+        for (int i = 0; i < size; i++)
+            counts[codes[i]]++;
+
+        int[][] lists = new int[counts.length][];
+        for (int code = 0; code < counts.length; code++)
+            lists[code] = new int[counts[code]];
+
+        int[] filled = new int[counts.length];
+        for (int i = 0; i < size; i++)
+            lists[codes[i]][filled[codes[i]]++] = i;
+
+        postings[column] = lists;
+        return lists;
+    }
+
+    private static void writeLongs(DataOutputStream out, long[] column, int size) throws IOException {
+        for (int i = 0; i < size; i++)
+            out.writeLong(column[i]);
+    }
+
+    private static void writeInts(DataOutputStream out, int[] column, int size) throws IOException {
+        for (int i = 0; i < size; i++)
+            out.writeInt(column[i]);
+    }
+
+    private static long[] readLongs(DataInputStream in, int size) throws IOException {
+        long[] column = new long[Math.max(size, 1)];
+        for (int i = 0; i < size; i++)
+            column[i] = in.readLong();
+        return column;
+    }
+
+    private static int[] readInts(DataInputStream in, int size) throws IOException {
+        int[] column = new int[Math.max(size, 1)];
+        for (int i = 0; i < size; i++)
+            column[i] = in.readInt();
+        return column;
+    }
+
+    /**
+     * Values of the single column encoded with int codes in the order of their first appearance
+     */
+    private static class Dictionary {
+
+        private final List<String> values = new ArrayList<>();
+        private final Map<String, Integer> codes = new HashMap<>();
+
+        // Returns -1 if the value is absent
+        int find(String value) {
+            Integer code = codes.get(value);
+            return code == null ? -1 : code;
+        }
+
+        int codeOf(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                values.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        String get(int code) {
+            return values.get(code);
+        }
+
+        int size() {
+            return values.size();
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(values.size());
+            for (String value : values) {
+                byte[] bytes = value.getBytes(Constants.logsCharset);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+
+        void read(DataInputStream in) throws IOException {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                codeOf(new String(bytes, Constants.logsCharset));
+            }
+        }
+    }
+}
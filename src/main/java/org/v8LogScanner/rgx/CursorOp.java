@@ -1,12 +1,9 @@
 package org.v8LogScanner.rgx;
 
-import org.v8LogScanner.commonly.Constants;
-import org.v8LogScanner.commonly.ExcpReporting;
 import org.v8LogScanner.logsCfg.LogEvent;
 import org.v8LogScanner.rgx.IRgxSelector.SelectDirections;
 import org.v8LogScanner.rgx.RegExp.PropTypes;
 
-import java.io.IOException;
 import java.math.BigInteger;
 import java.util.*;
 import java.util.concurrent.ConcurrentMap;
@@ -19,6 +16,8 @@ public class CursorOp extends AbstractOp {
     private long totalOut = 0;
     private long afterSlize = 0;
     private long totalKeys = 0;
+    private List<String> logFiles;
+    private Collection<String> syncReduced;
 
     // profile variables
     private int limit;
@@ -33,9 +32,9 @@ public class CursorOp extends AbstractOp {
 
     // INTERFACE
 
-    public void execute(List<String> logFiles) {
+    // SCANNING PHASES
 
-        calc.start();
+    void beginScan(List<String> logFiles) {
 
         saveProcessingInfo("\n*START CURSOR LOG SCANNING...");
 
@@ -43,38 +42,65 @@ public class CursorOp extends AbstractOp {
 
         precompile(rgxList);
 
-        List<String> reducedLogs = new ArrayList<>();
-        Collection<String> syncReduced = Collections.synchronizedCollection(reducedLogs);
-
-        for (int i = 0; i < logFiles.size(); i++) {
-            try (RgxReader reader = new RgxReader(logFiles.get(i), Constants.logsCharset, Constants.logEventsCount)) {
-                ArrayList<String> readResult;
-                while (reader.next()) {
-                    readResult = reader.getResult();
-                    inSize += readResult.size();
-                    TreeMap<SortingKey, List<String>> mapResults = mapLogs(readResult);
-                    int out = mapResults.entrySet().stream().mapToInt(n -> n.getValue().size()).sum();
-                    outSize += Math.min(out, limit);
-                    intermediateReduction(syncReduced, mapResults);
-                }
-            } catch (IOException e) {
-                ExcpReporting.LogError(this.getClass(), e);
-            }
-            saveProcessingInfo(String.format("in: %s, out: %s, %s", inSize, outSize, logFiles.get(i)));
-            totalIn += inSize;
-            totalOut += outSize;
-            inSize = 0;
-            outSize = 0;
+        this.logFiles = logFiles;
+        syncReduced = Collections.synchronizedCollection(new ArrayList<>());
+    }
+
+    void scanBatch(RgxReader reader, int fileId) {
+
+        ArrayList<String> readResult = reader.getResult();
+        inSize += readResult.size();
+        TreeMap<SortingKey, List<String>> mapResults = mapLogs(readResult);
+        int out = mapResults.entrySet().stream().mapToInt(n -> n.getValue().size()).sum();
+        outSize += Math.min(out, limit);
+        List<String> reduced = intermediateReduction(mapResults);
+        syncReduced.addAll(reduced);
+        if (filePartial != null)
+            filePartial.computeIfAbsent("", key -> new ArrayList<>()).addAll(reduced);
+    }
+
+    void endFile(int fileId) {
+        saveProcessingInfo(String.format("in: %s, out: %s, %s", inSize, outSize, logFiles.get(fileId)));
+        totalIn += inSize;
+        totalOut += outSize;
+        inSize = 0;
+        outSize = 0;
+    }
+
+    @Override
+    boolean cacheable() {
+        return true;
+    }
+
+    @Override
+    void restoreFile(int fileId, Map<String, List<String>> partial) {
+
+        int out = 0;
+        for (List<String> events : partial.values()) {
+            syncReduced.addAll(events);
+            out += events.size();
         }
+        totalOut += out;
+
+        saveProcessingInfo(String.format("cached out: %s, %s", out, logFiles.get(fileId)));
+    }
+
+    void endScan() {
+
         afterSlize = syncReduced.size();
         TreeMap<SortingKey, List<String>> rgxResult = finalReduction(syncReduced);
+        syncReduced = null;
 
         totalKeys = rgxResult.keySet().size();
 
         sortLogs(rgxResult);
 
         selector.setResult(rgxResult);
-        calc.end();
+    }
+
+    void cancelScan() {
+        syncReduced = null;
+        selector.clearResult();
     }
 
     private void resetResult() {
@@ -124,9 +150,7 @@ public class CursorOp extends AbstractOp {
 
     private TreeMap<SortingKey, List<String>> mapLogs(ArrayList<String> sourceCol) {
 
-        TreeMap<SortingKey, List<String>> mapped = sourceCol
-                        .stream()
-                        .parallel()
+        TreeMap<SortingKey, List<String>> mapped = batchStream(sourceCol)
                         .filter(n -> RgxOpManager.anyMatch(n, eventPatterns, integerFilters, integerCompTypes))
                         .collect(Collectors.collectingAndThen(
                                 Collectors.groupingByConcurrent(this::createSortingKey),
@@ -141,14 +165,14 @@ public class CursorOp extends AbstractOp {
 
     }
 
-    private void intermediateReduction(Collection<String> syncReduced, TreeMap<SortingKey, List<String>> mapped) {
+    private List<String> intermediateReduction(TreeMap<SortingKey, List<String>> mapped) {
 
-        mapped.entrySet().
+        return mapped.entrySet().
                 stream().
                 sequential().
                 flatMap(n -> n.getValue().stream()).
                 limit(limit).
-                forEach(n -> syncReduced.add(n));
+                collect(Collectors.toList());
 
     }
 
@@ -188,8 +212,7 @@ public class CursorOp extends AbstractOp {
 
         rgxResult.entrySet().
                 parallelStream().
-                forEach(n -> n.getValue().
-                        sort(RgxOpManager::compare));
+                forEach(n -> RgxOpManager.sortByTime(n.getValue()));
 
         saveProcessingInfo("Sorting completed.");
     }
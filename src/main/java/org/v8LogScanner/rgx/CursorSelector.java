@@ -2,8 +2,10 @@ package org.v8LogScanner.rgx;
 
 import org.v8LogScanner.rgx.CursorOp.SortingKey;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.TreeMap;
 
 public class CursorSelector implements IRgxSelector {
@@ -12,8 +14,21 @@ public class CursorSelector implements IRgxSelector {
 
     private TreeMap<SortingKey, List<String>> rgxResult = new TreeMap<>();
 
+    // array view of the sorted result giving positional access to the groups
+    private SortingKey[] keys = new SortingKey[0];
+    private List<?>[] values = new List<?>[0];
+
     public void setResult(TreeMap<SortingKey, List<String>> result) {
         rgxResult = result;
+
+        keys = new SortingKey[result.size()];
+        values = new List<?>[result.size()];
+        int i = 0;
+        for (Map.Entry<SortingKey, List<String>> entry : result.entrySet()) {
+            keys[i] = entry.getKey();
+            values[i] = entry.getValue();
+            i++;
+        }
     }
 
     public TreeMap<SortingKey, List<String>> getResult() {
@@ -22,11 +37,11 @@ public class CursorSelector implements IRgxSelector {
 
     public List<SelectorEntry> select(int count, SelectDirections direction) {
 
-        if (direction == SelectDirections.FORWARD && cursorIndex == rgxResult.size() - 1)
+        if (direction == SelectDirections.FORWARD && cursorIndex == keys.length - 1)
             cursorIndex = 0;
 
         if (direction == SelectDirections.BACKWARD && cursorIndex == 0)
-            cursorIndex = Math.max(rgxResult.size() - count, 0);
+            cursorIndex = Math.max(keys.length - count, 0);
         else if (direction == SelectDirections.BACKWARD) {
             count = Math.min(cursorIndex, count);
             cursorIndex = cursorIndex - count;
@@ -34,16 +49,12 @@ public class CursorSelector implements IRgxSelector {
 
         List<SelectorEntry> selected = new ArrayList<>();
 
-        rgxResult.entrySet().
-                stream().
-                skip(cursorIndex).
-                limit(count).forEachOrdered(entry -> {
-            SelectorEntry row = new SelectorEntry(entry.getKey().toString(), entry.getValue());
-            selected.add(row);
-        });
+        int last = (int) Math.min((long) cursorIndex + count, keys.length);
+        for (int i = cursorIndex; i < last; i++)
+            selected.add(get(i));
 
         if (direction == SelectDirections.FORWARD)
-            cursorIndex = Math.min(cursorIndex + selected.size(), rgxResult.size() - 1);
+            cursorIndex = Math.min(cursorIndex + selected.size(), keys.length - 1);
 
         if (cursorIndex < 0)
             cursorIndex = 0;
@@ -51,12 +62,52 @@ public class CursorSelector implements IRgxSelector {
         return selected;
     }
 
+    /**
+     * Returns the group placed at the position of the sorted result
+     */
+    @SuppressWarnings("unchecked")
+    public SelectorEntry get(int index) {
+        return new SelectorEntry(keys[index].toString(), (List<String>) values[index]);
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * Moves the cursor so the next forward selection starts from the position
+     */
+    public void jumpTo(int index) {
+        cursorIndex = Math.max(0, Math.min(index, keys.length - 1));
+    }
+
+    /**
+     * Binary search by the sort value. Groups are sorted by the value descending,
+     * so the method returns the position of the first group which value
+     * does not exceed the given one or the size of the result if there is no such group
+     */
+    public int indexOf(BigInteger sortValue) {
+
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].getSortingKey().compareTo(sortValue) > 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
     public int cursorIndex() {
         return cursorIndex;
     }
 
     public void clearResult() {
         rgxResult.clear();
+        keys = new SortingKey[0];
+        values = new List<?>[0];
         cursorIndex = 0;
     }
 
@@ -0,0 +1,271 @@
+package org.v8LogScanner.rgx;
+
+import org.v8LogScanner.commonly.ExcpReporting;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads log files ahead of the scan with the separate limits for each device. Files are grouped by their
+ * file stores and every device has its own number of reading threads and its own readahead size,
+ * so the slow disk is read by a single sequential stream while the fast one is read by several threads.
+ * Each device reads its files in the order of the scan, the bytes of the file are passed to the reader
+ * of the scan through the bounded queue, so no more than two readahead chunks are kept for every thread.
+ * <p>
+ * Limits are set as "device=threads:readaheadKb" entries separated by ";". The device is the name
+ * of the file store or a part of its description, the "*" device sets the limits of the other devices.
+ */
+class DeviceScheduler implements AutoCloseable {
+
+    private static final int DEFAULT_THREADS = 2;
+    private static final int DEFAULT_READAHEAD_KB = 1024;
+    // chunks of the file read ahead of the scan by the single thread
+    private static final int QUEUED_CHUNKS = 2;
+    private static final ByteBuffer EOF = ByteBuffer.allocate(0);
+
+    private final Map<String, Prefetch> prefetches = new ConcurrentHashMap<>();
+    private final List<Device> devices = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+    // restricts the rate of reading the files, null if reading is not throttled
+    private final Throttle throttle;
+    private volatile boolean closed = false;
+
+    /**
+     * @param logFiles - files in the order of the scan, each of them must be read once fully
+     */
+    DeviceScheduler(String limits, List<String> logFiles, Throttle throttle) {
+
+        this.throttle = throttle;
+
+        Map<String, int[]> deviceLimits = parseLimits(limits);
+        Map<Path, FileStore> dirStores = new HashMap<>();
+        Map<FileStore, Device> storeDevices = new LinkedHashMap<>();
+
+        for (String logFile : logFiles) {
+            Path path = Paths.get(logFile).toAbsolutePath();
+            FileStore store;
+            try {
+                Path dir = path.getParent();
+                store = dirStores.get(dir);
+                if (store == null) {
+                    store = Files.getFileStore(path);
+                    dirStores.put(dir, store);
+                }
+            } catch (IOException e) {
+                // the file is read by the scan itself
+                continue;
+            }
+            Device device = storeDevices.get(store);
+            if (device == null) {
+                device = new Device(store, limitsOf(store, deviceLimits));
+                storeDevices.put(store, device);
+                devices.add(device);
+            }
+            Prefetch prefetch = new Prefetch(path);
+            device.files.add(prefetch);
+            prefetches.put(logFile, prefetch);
+        }
+
+        for (Device device : devices) {
+            for (int i = 0; i < device.threads; i++) {
+                Thread thread = new Thread(device::read, "v8LogScanner-io-" + device.store.name() + "-" + i);
+                thread.setDaemon(true);
+                threads.add(thread);
+                thread.start();
+            }
+        }
+    }
+
+    /**
+     * Channel returning the bytes of the file read ahead or null if the file is not scheduled.
+     * The file must be read through the channel fully or the channel must be closed.
+     */
+    ReadableByteChannel channel(String logFile) {
+        return prefetches.remove(logFile);
+    }
+
+    // releases the threads reading the file which is not read by the scan
+    void skip(String logFile) {
+        Prefetch prefetch = prefetches.remove(logFile);
+        if (prefetch != null)
+            prefetch.close();
+    }
+
+    List<String> describe() {
+        List<String> info = new ArrayList<>();
+        for (Device device : devices)
+            info.add(String.format("device %s: %s threads, %s kb readahead, %s files",
+                    device.store, device.threads, device.readahead / 1024, device.files.size()));
+        return info;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        threads.forEach(Thread::interrupt);
+    }
+
+    // PRIVATE
+
+    private static Map<String, int[]> parseLimits(String limits) {
+
+        Map<String, int[]> result = new LinkedHashMap<>();
+        for (String entry : limits.split(";")) {
+            String[] nameLimits = entry.trim().split("=");
+            if (nameLimits.length != 2)
+                continue;
+            String[] values = nameLimits[1].trim().split(":");
+            try {
+                int threads = Integer.parseInt(values[0].trim());
+                int readahead = values.length > 1 ? Integer.parseInt(values[1].trim()) : DEFAULT_READAHEAD_KB;
+                result.put(nameLimits[0].trim(), new int[]{Math.max(threads, 1), Math.max(readahead, 4)});
+            } catch (NumberFormatException e) {
+                ExcpReporting.logInfo(String.format("Incorrect device limits: %s. It skipped.", entry));
+            }
+        }
+        return result;
+    }
+
+    private static int[] limitsOf(FileStore store, Map<String, int[]> deviceLimits) {
+
+        for (Map.Entry<String, int[]> entry : deviceLimits.entrySet()) {
+            String name = entry.getKey();
+            if (!name.equals("*") && (store.name().equals(name) || store.toString().contains(name)))
+                return entry.getValue();
+        }
+        return deviceLimits.getOrDefault("*", new int[]{DEFAULT_THREADS, DEFAULT_READAHEAD_KB});
+    }
+
+    private class Device {
+
+        private final FileStore store;
+        private final int threads;
+        private final int readahead;
+        private final List<Prefetch> files = new ArrayList<>();
+        private final AtomicInteger next = new AtomicInteger();
+
+        private Device(FileStore store, int[] limits) {
+            this.store = store;
+            this.threads = limits[0];
+            this.readahead = limits[1] * 1024;
+        }
+
+        // every thread takes the next file of the device so the files are started in the order of the scan
+        private void read() {
+
+            int i;
+            try {
+                while (!closed && (i = next.getAndIncrement()) < files.size())
+                    readFile(files.get(i));
+            } catch (InterruptedException e) {
+                // the scan is finished
+            }
+        }
+
+        private void readFile(Prefetch prefetch) throws InterruptedException {
+
+            try (FileChannel channel = FileChannel.open(prefetch.path, StandardOpenOption.READ)) {
+                while (true) {
+                    ByteBuffer chunk = ByteBuffer.allocate(readahead);
+                    int n = 0;
+                    while (chunk.hasRemaining() && n >= 0)
+                        n = channel.read(chunk);
+                    chunk.flip();
+                    if (throttle != null)
+                        throttle.acquire(chunk.limit());
+                    if (chunk.hasRemaining() && !prefetch.offer(chunk))
+                        return;
+                    if (n < 0)
+                        break;
+                }
+            } catch (InterruptedIOException e) {
+                throw new InterruptedException();
+            } catch (IOException e) {
+                prefetch.error = e;
+            }
+            prefetch.offer(EOF);
+        }
+    }
+
+    private class Prefetch implements ReadableByteChannel {
+
+        private final Path path;
+        private final BlockingQueue<ByteBuffer> chunks = new ArrayBlockingQueue<>(QUEUED_CHUNKS);
+        private volatile IOException error = null;
+        private volatile boolean open = true;
+        private ByteBuffer current = null;
+
+        private Prefetch(Path path) {
+            this.path = path;
+        }
+
+        // false if the channel is closed by the scan and the rest of the file is not needed
+        private boolean offer(ByteBuffer chunk) throws InterruptedException {
+            while (open && !closed) {
+                if (chunks.offer(chunk, 100, TimeUnit.MILLISECONDS))
+                    return true;
+            }
+            return false;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+
+            if (!open)
+                throw new ClosedChannelException();
+
+            if (current == null || !current.hasRemaining()) {
+                if (current == EOF)
+                    return -1;
+                try {
+                    current = chunks.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+                if (current == EOF) {
+                    if (error != null)
+                        throw error;
+                    return -1;
+                }
+            }
+
+            int n = Math.min(dst.remaining(), current.remaining());
+            ByteBuffer slice = current.duplicate();
+            slice.limit(slice.position() + n);
+            dst.put(slice);
+            current.position(current.position() + n);
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+            chunks.clear();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.v8LogScanner.rgx;
+
+import org.v8LogScanner.commonly.Constants;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only storage of event texts encoded in the logs charset and placed outside of the java heap.
+ * The arena is a contiguous address space split into direct buffers (chunks) of the same size
+ * so an event may span several chunks. Memory is released when the arena becomes unreachable.
+ * Note that the total size is restricted by the -XX:MaxDirectMemorySize jvm option.
+ */
+public class EventArena {
+
+    private static final int CHUNK_SIZE = 32 * 1024 * 1024;
+
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private long size = 0;
+
+    /**
+     * Appends bytes to the arena and returns their address
+     */
+    public synchronized long append(byte[] bytes) {
+
+        long address = size;
+        int written = 0;
+        while (written < bytes.length) {
+            int chunkIndex = (int) (size / CHUNK_SIZE);
+            if (chunkIndex == chunks.size())
+                chunks.add(ByteBuffer.allocateDirect(CHUNK_SIZE));
+            ByteBuffer chunk = chunks.get(chunkIndex);
+            chunk.position((int) (size % CHUNK_SIZE));
+            int count = Math.min(chunk.remaining(), bytes.length - written);
+            chunk.put(bytes, written, count);
+            written += count;
+            size += count;
+        }
+        return address;
+    }
+
+    public long append(String event) {
+        return append(event.getBytes(Constants.logsCharset));
+    }
+
+    public String read(long address, int length) {
+
+        byte[] bytes = new byte[length];
+        int read = 0;
+        while (read < length) {
+            ByteBuffer chunk;
+            synchronized (this) {
+                chunk = chunks.get((int) ((address + read) / CHUNK_SIZE)).duplicate();
+            }
+            chunk.position((int) ((address + read) % CHUNK_SIZE));
+            int count = Math.min(chunk.remaining(), length - read);
+            chunk.get(bytes, read, count);
+            read += count;
+        }
+        return new String(bytes, Constants.logsCharset);
+    }
+
+    /**
+     * Amount of bytes written into the arena
+     */
+    public synchronized long size() {
+        return size;
+    }
+}
@@ -0,0 +1,159 @@
+package org.v8LogScanner.rgx;
+
+import org.v8LogScanner.commonly.Constants;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Read-only list of events stored as compact references into log files instead of the event texts.
+ * Each reference keeps the file id, the byte offset, the byte length
+ * and the time of the event used for sorting. Texts are read from log files on demand.
+ * When the list is created over the EventArena the references point to the event texts
+ * copied into the arena instead of log files.
+ */
+public class EventRefs extends AbstractList<String> {
+
+    private final List<String> files;
+    private final EventArena arena;
+    private int[] fileIds = new int[4];
+    private long[] positions = new long[4];
+    private int[] lengths = new int[4];
+    private long[] times = new long[4];
+    private int size = 0;
+
+    /**
+     * @param files - list of the log files which indexes are used as file ids
+     */
+    public EventRefs(List<String> files) {
+        this.files = files;
+        this.arena = null;
+    }
+
+    public EventRefs(EventArena arena) {
+        this.files = null;
+        this.arena = arena;
+    }
+
+    public synchronized void add(int fileId, long offset, int length, long time) {
+        if (fileId < 0 || offset < 0)
+            throw new IllegalArgumentException(String.format("Incorrect reference: file %s, offset %s", fileId, offset));
+        if (size == positions.length) {
+            int newSize = size * 2;
+            fileIds = Arrays.copyOf(fileIds, newSize);
+            positions = Arrays.copyOf(positions, newSize);
+            lengths = Arrays.copyOf(lengths, newSize);
+            times = Arrays.copyOf(times, newSize);
+        }
+        fileIds[size] = fileId;
+        positions[size] = offset;
+        lengths[size] = length;
+        times[size] = time;
+        size++;
+    }
+
+    /**
+     * Copies the event into the arena and adds the reference to it
+     */
+    public void add(String event, long time) {
+        if (arena == null)
+            throw new UnsupportedOperationException("Events can be added only to the list over the arena");
+        byte[] bytes = event.getBytes(Constants.logsCharset);
+        add(0, arena.append(bytes), bytes.length, time);
+    }
+
+    /**
+     * Stable sorting of the references by the event time without reading events from files
+     */
+    public synchronized void sortByTime() {
+
+        int[] order = TimeMerge.order(times, size);
+        if (order == null)
+            return;
+
+        int[] sortedFileIds = new int[fileIds.length];
+        long[] sortedPositions = new long[positions.length];
+        int[] sortedLengths = new int[lengths.length];
+        long[] sortedTimes = new long[times.length];
+        for (int i = 0; i < size; i++) {
+            int index = order[i];
+            sortedFileIds[i] = fileIds[index];
+            sortedPositions[i] = positions[index];
+            sortedLengths[i] = lengths[index];
+            sortedTimes[i] = times[index];
+        }
+        fileIds = sortedFileIds;
+        positions = sortedPositions;
+        lengths = sortedLengths;
+        times = sortedTimes;
+    }
+
+    public synchronized void trimToSize() {
+        fileIds = Arrays.copyOf(fileIds, Math.max(size, 1));
+        positions = Arrays.copyOf(positions, Math.max(size, 1));
+        lengths = Arrays.copyOf(lengths, Math.max(size, 1));
+        times = Arrays.copyOf(times, Math.max(size, 1));
+    }
+
+    @Override
+    public String get(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        return read(index, index + 1).get(0);
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return read(0, size).iterator();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private synchronized List<String> read(int from, int to) {
+
+        List<String> events = new ArrayList<>(to - from);
+
+        if (arena != null) {
+            for (int i = from; i < to; i++)
+                events.add(arena.read(positions[i], lengths[i]));
+            return events;
+        }
+
+        RandomAccessFile file = null;
+        int currFileId = -1;
+        try {
+            for (int i = from; i < to; i++) {
+                int fileId = fileIds[i];
+                if (fileId != currFileId) {
+                    if (file != null)
+                        file.close();
+                    file = new RandomAccessFile(files.get(fileId), "r");
+                    currFileId = fileId;
+                }
+                byte[] bytes = new byte[lengths[i]];
+                file.seek(positions[i]);
+                file.readFully(bytes);
+                events.add(new String(bytes, Constants.logsCharset).trim());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            try {
+                if (file != null)
+                    file.close();
+            } catch (IOException e) {
+                // Do nothing. The file was opened only for reading
+            }
+        }
+        return events;
+    }
+}
@@ -3,14 +3,20 @@
 
 package org.v8LogScanner.rgx;
 
-import org.v8LogScanner.commonly.Constants;
 import org.v8LogScanner.commonly.ExcpReporting;
 import org.v8LogScanner.rgx.IRgxSelector.SelectDirections;
 import org.v8LogScanner.rgx.ScanProfile.GroupTypes;
+import org.v8LogScanner.rgx.ScanProfile.ResultStorages;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
@@ -18,24 +24,41 @@ import java.util.stream.Collectors;
 public class HeapOp extends AbstractOp {
 
     private HeapSelector selector = new HeapSelector();
+    private SpillingReducer spillingReducer = null;
+    private final KeyDictionary dictionary = new KeyDictionary();
+    private EventArena arena = null;
     private long totalKeys = 0;
     private long mapped = 0;
     private long reduced = 0;
+    private long folded = 0;
+    private long maxError = 0;
+    // scanning state
+    private List<String> logFiles;
+    private HeavyHitters heavyHitters;
+    private boolean keepRefs;
+    private boolean reduceByIds;
+    private List<List<String>> groups;
 
     //profile variables
     private List<RegExp> rgxList;
     private GroupTypes groupType;
+    private int topKeys;
+    private int memoryBudget;
+    private ResultStorages resultStorage;
 
     public HeapOp(ScanProfile profile) {
         this.rgxList = profile.getRgxList();
         this.groupType = profile.getGroupType();
+        this.topKeys = profile.getTopKeys();
+        this.memoryBudget = profile.getMemoryBudget();
+        this.resultStorage = profile.getResultStorage();
     }
 
     // INTERFACE
 
-    public void execute(List<String> logFiles) {
+    // SCANNING PHASES
 
-        calc.start();
+    void beginScan(List<String> logFiles) {
 
         saveProcessingInfo("\n*START HEAP LOG SCANNING...");
 
@@ -43,61 +66,164 @@ public class HeapOp extends AbstractOp {
 
         precompile(rgxList);
 
-        ConcurrentMap<String, List<String>> rgxResult = new ConcurrentHashMap<>();
+        this.logFiles = logFiles;
+        // bounded alternative to the rgxResult when the amount of keys is restricted
+        heavyHitters = topKeys > 0 ? new HeavyHitters(topKeys) : null;
+        // keeps references to events in log files instead of event texts
+        keepRefs = heavyHitters == null && resultStorage == ResultStorages.REFERENCES;
+        // spills groups on disk when they exceed the memory budget
+        if (heavyHitters == null && !keepRefs && memoryBudget > 0)
+            spillingReducer = new SpillingReducer(memoryBudget * 1024L * 1024L);
+        // groups reduced by key ids, the index of the list is the id of the key
+        reduceByIds = heavyHitters == null && spillingReducer == null;
+        // copies event texts outside of the java heap
+        if (reduceByIds && !keepRefs && resultStorage == ResultStorages.OFF_HEAP)
+            arena = new EventArena();
+        groups = new ArrayList<>();
+    }
+
+    void scanBatch(RgxReader reader, int fileId) {
+
+        ArrayList<String> result = reader.getResult();
+        inSize += result.size();
+
+        if (reduceByIds) {
+            outSize += reduceByIds(reader, fileId, logFiles, groups, keepRefs);
+            return;
+        }
+
+        Map<String, List<String>> mapLogs = mapLogs(result, logFiles.get(fileId));
+
+        outSize += mapLogs.
+                entrySet().
+                stream().
+                mapToInt(n -> n.getValue().size()).
+                sum();
 
-        for (int i = 0; i < logFiles.size(); i++) {
-            try (RgxReader reader = new RgxReader(logFiles.get(i), Constants.logsCharset, Constants.logEventsCount)) {
+        if (filePartial != null)
+            mapLogs.forEach(this::addPartial);
 
-                ArrayList<String> result;
-                ConcurrentMap<String, List<String>> mapLogs;
-                while (reader.next()) {
+        reduceMapped(mapLogs);
+    }
 
-                    result = reader.getResult();
-                    inSize += result.size();
+    void endFile(int fileId) {
 
-                    mapLogs = mapLogs(result, logFiles.get(i));
+        mapped += outSize;
 
-                    outSize += mapLogs.
-                            entrySet().
-                            stream().
-                            mapToInt(n -> n.getValue().size()).
-                            sum();
+        saveProcessingInfo(String.format("in: %s, out: %s, %s", inSize, outSize, logFiles.get(fileId)));
+        inSize = 0;
+        outSize = 0;
+    }
 
-                    reduceLogs(mapLogs, rgxResult);
+    void endScan() {
+
+        ConcurrentMap<String, List<String>> rgxResult = new ConcurrentHashMap<>();
 
-                    mapLogs.clear();
-                }
+        if (reduceByIds) {
+            for (int id = 0; id < groups.size(); id++)
+                rgxResult.put(dictionary.keyOf(id), groups.get(id));
+            dictionary.clear();
+        }
+        groups = null;
+
+        // the top keys keep only samples of their events, so their counts are reduced
+        long counted = -1;
+        if (heavyHitters != null) {
+            rgxResult = heavyHitters.getResult();
+            folded = heavyHitters.getFolded();
+            maxError = heavyHitters.maxError();
+            counted = heavyHitters.getTotal();
+            heavyHitters = null;
+        } else if (spillingReducer != null) {
+            try {
+                rgxResult = spillingReducer.getResult();
+                if (spillingReducer.getRunsCount() > 0)
+                    saveProcessingInfo(String.format("Groups were spilled on disk in %s runs and merged",
+                            spillingReducer.getRunsCount()));
             } catch (IOException e) {
                 ExcpReporting.LogError(this.getClass(), e);
             }
-
-            mapped += outSize;
-
-            saveProcessingInfo(String.format("in: %s, out: %s, %s", inSize, outSize, logFiles.get(i)));
-            inSize = 0;
-            outSize = 0;
         }
 
-        // later need to estimate effect after applying trimToSize() method to ArrayList instance
         sortLogs(rgxResult);
 
-        reduced += rgxResult.
-                entrySet().
-                stream().
-                mapToInt(n -> n.getValue().size()).
-                sum();
+        if (counted >= 0)
+            reduced += counted;
+        else
+            reduced += rgxResult.
+                    entrySet().
+                    stream().
+                    mapToInt(n -> n.getValue().size()).
+                    sum();
 
         saveFinalInfo(rgxResult);
         selector.setResult(rgxResult);
+    }
+
+    void cancelScan() {
+        groups = null;
+        heavyHitters = null;
+        arena = null;
+        dictionary.clear();
+        if (spillingReducer != null) {
+            spillingReducer.close();
+            spillingReducer = null;
+        }
+        selector.clearResult();
+    }
+
+    @Override
+    boolean tracksOffsets() {
+        return keepRefs;
+    }
+
+    // the spilled groups are not cached as the partial of the file would keep all its events in memory
+    @Override
+    boolean cacheable() {
+        return !keepRefs && arena == null && spillingReducer == null;
+    }
 
-        calc.end();
+    @Override
+    void restoreFile(int fileId, Map<String, List<String>> partial) {
+
+        long out;
+        if (heavyHitters != null) {
+            out = 0;
+            // keys are offered in the same order as by the scan of the file
+            for (Map.Entry<String, List<String>> entry : new TreeMap<>(partial).entrySet()) {
+                List<String> aggregate = entry.getValue();
+                long count = Long.parseLong(aggregate.get(0));
+                heavyHitters.offer(entry.getKey(), count, aggregate.subList(1, aggregate.size()));
+                out += count;
+            }
+        } else {
+            out = partial.values().stream().mapToInt(List::size).sum();
+            long fileHour = RgxOpManager.getFileHour(logFiles.get(fileId));
+            for (Map.Entry<String, List<String>> entry : new TreeMap<>(partial).entrySet()) {
+                TimedEvents group = (TimedEvents) groupOf(dictionary.idOf(entry.getKey()));
+                for (String event : entry.getValue())
+                    group.add(event, RgxOpManager.getTimestamp(event, fileHour));
+            }
+        }
+
+        mapped += out;
+
+        saveProcessingInfo(String.format("cached out: %s, %s", out, logFiles.get(fileId)));
     }
 
     private void resetResult() {
         selector.clearResult();
+        dictionary.clear();
+        arena = null;
+        if (spillingReducer != null) {
+            spillingReducer.close();
+            spillingReducer = null;
+        }
         processingInfo.clear();
         mapped = 0;
         reduced = 0;
+        folded = 0;
+        maxError = 0;
         inSize = 0;
         outSize = 0;
     }
@@ -112,44 +238,134 @@ public class HeapOp extends AbstractOp {
 
     // PRIVATE
 
-    private ConcurrentMap<String, List<String>> mapLogs(ArrayList<String> sourceCol, String filename) {
+    // Each worker groups its part of the batch into its own map and the maps of the parts are merged
+    // pairwise when the parts are joined, so hot keys are not contended in a shared map
+    private Map<String, List<String>> mapLogs(ArrayList<String> sourceCol, String filename) {
 
-        ConcurrentMap<String, List<String>> mapResults = null;
+        Map<String, List<String>> mapResults = null;
 
         if (groupType == GroupTypes.BY_PROPS) {
-            mapResults = sourceCol
-                    .parallelStream()
+            mapResults = batchStream(sourceCol)
                     .unordered()
                     .filter(n -> RgxOpManager.anyMatch(n, eventPatterns, integerFilters, integerCompTypes))
-                    .collect(Collectors.groupingByConcurrent(input -> {
+                    .collect(Collectors.groupingBy(input -> {
                                 return RgxOpManager.getEventProperty(input, eventPatterns, cleanPropsRgx, groupPropsRgx);
-                            }
+                            },
+                            HashMap::new, Collectors.toList()
                     ));
         } else if (groupType == GroupTypes.BY_FILE_NAMES) {
-            mapResults = sourceCol
-                    .parallelStream()
+            mapResults = batchStream(sourceCol)
                     .unordered()
                     .filter(n -> RgxOpManager.anyMatch(n, eventPatterns, integerFilters, integerCompTypes))
-                    .collect(Collectors.groupingByConcurrent(n -> filename));
+                    .collect(Collectors.groupingBy(n -> filename, HashMap::new, Collectors.toList()));
         }
 
         return mapResults;
     }
 
-    private void reduceLogs(ConcurrentMap<String, List<String>> mapLogs, ConcurrentMap<String, List<String>> rgxResult) {
-        mapLogs.
-                entrySet().parallelStream().
-                forEach(row -> {
-                            rgxResult.merge(
-                                    row.getKey(),
-                                    row.getValue(),
-                                    (a1, a2) -> {
-                                        a1.addAll(a2);
-                                        return a1;
-                                    }
-                            );
-                        }
-                );
+    /**
+     * Maps events to ids of the grouping keys and to their timestamps. Not matched events get -1.
+     * Workers write only their own elements of the arrays and read the dictionary without locks for known keys.
+     */
+    private int[] mapIds(ArrayList<String> sourceCol, String filename, long fileHour, long[] times) {
+
+        int[] ids = new int[sourceCol.size()];
+        // events skipped by the cancelled scan are not mapped
+        Arrays.fill(ids, -1);
+
+        batchRange(ids.length).forEach(j -> {
+            String input = sourceCol.get(j);
+            if (!RgxOpManager.anyMatch(input, eventPatterns, integerFilters, integerCompTypes)) {
+                return;
+            }
+            if (groupType == GroupTypes.BY_FILE_NAMES)
+                ids[j] = dictionary.idOf(filename);
+            else
+                ids[j] = dictionary.idOf(
+                        RgxOpManager.getEventProperty(input, eventPatterns, cleanPropsRgx, groupPropsRgx));
+            times[j] = RgxOpManager.getTimestamp(input, fileHour);
+        });
+
+        return ids;
+    }
+
+    // Returns amount of mapped events
+    private int reduceByIds(RgxReader reader, int fileId, List<String> logFiles,
+                            List<List<String>> groups, boolean keepRefs) {
+
+        ArrayList<String> sourceCol = reader.getResult();
+        long fileHour = RgxOpManager.getFileHour(logFiles.get(fileId));
+        long[] times = new long[sourceCol.size()];
+        int[] ids = mapIds(sourceCol, logFiles.get(fileId), fileHour, times);
+
+        int out = 0;
+        for (int j = 0; j < ids.length; j++) {
+            int id = ids[j];
+            if (id < 0)
+                continue;
+            List<String> group = groupOf(id);
+
+            String event = sourceCol.get(j);
+            long time = times[j];
+            if (keepRefs)
+                ((EventRefs) group).add(fileId, reader.getOffset(j), reader.getLength(j), time);
+            else if (arena != null)
+                ((EventRefs) group).add(event, time);
+            else {
+                ((TimedEvents) group).add(event, time);
+                if (filePartial != null)
+                    filePartial.computeIfAbsent(dictionary.keyOf(id), key -> new ArrayList<>()).add(event);
+            }
+            out++;
+        }
+        return out;
+    }
+
+    // Returns the group of the key id creating groups up to it
+    private List<String> groupOf(int id) {
+        while (groups.size() <= id) {
+            if (keepRefs)
+                groups.add(new EventRefs(logFiles));
+            else if (arena != null)
+                groups.add(new EventRefs(arena));
+            else
+                groups.add(new TimedEvents());
+        }
+        return groups.get(id);
+    }
+
+    // Reduces mapped groups either into the top keys or into the spilling reducer
+    private void reduceMapped(Map<String, List<String>> mapLogs) {
+
+        if (heavyHitters != null)
+            reduceLogs(mapLogs, heavyHitters);
+        else {
+            try {
+                spillingReducer.reduce(mapLogs);
+            } catch (IOException e) {
+                ExcpReporting.LogError(this.getClass(), e);
+            }
+        }
+
+        mapLogs.clear();
+    }
+
+    // keys are offered in their order, so the kept keys do not depend on the order of the hash map
+    private void reduceLogs(Map<String, List<String>> mapLogs, HeavyHitters heavyHitters) {
+        new TreeMap<>(mapLogs).forEach(heavyHitters::offer);
+    }
+
+    // The partial of the top keys keeps the count of the key followed by the sample of its events
+    private void addPartial(String key, List<String> events) {
+
+        if (heavyHitters == null) {
+            filePartial.computeIfAbsent(key, k -> new ArrayList<>()).addAll(events);
+            return;
+        }
+        List<String> aggregate = filePartial.computeIfAbsent(key, k -> new ArrayList<>(Collections.singletonList("0")));
+        aggregate.set(0, Long.toString(Long.parseLong(aggregate.get(0)) + events.size()));
+        for (int i = 0; i < events.size() && aggregate.size() <= HeavyHitters.SAMPLE_SIZE; i++)
+            aggregate.add(events.get(i));
     }
 
     private void sortLogs(ConcurrentMap<String, List<String>> rgxResult) {
@@ -158,12 +374,24 @@ public class HeapOp extends AbstractOp {
 
         rgxResult.entrySet().
                 parallelStream().
-                forEach(n -> n.getValue().
-                        sort(RgxOpManager::compare));
+                forEach(n -> sortEvents(n.getValue()));
 
         saveProcessingInfo("Sorting completed.");
     }
 
+    // groups collected by key ids are merged by the precomputed timestamps of events
+    private static void sortEvents(List<String> events) {
+        if (events instanceof EventRefs) {
+            ((EventRefs) events).sortByTime();
+            ((EventRefs) events).trimToSize();
+        } else if (events instanceof TimedEvents) {
+            ((TimedEvents) events).sortByTime();
+            ((TimedEvents) events).trimToSize();
+        } else if (events instanceof RandomAccess)
+            RgxOpManager.sortByTime(events);
+        // other lists are read from disk and already sorted
+    }
+
     private void saveFinalInfo(ConcurrentMap<String, List<String>> rgxResult) {
         totalKeys = rgxResult.keySet().size();
     }
@@ -176,6 +404,13 @@ public class HeapOp extends AbstractOp {
                         + "\n Total keys: %s"
                         + "\n Execution time: %s", logDescr, reduced, totalKeys, calc.getTime());
 
+        if (arena != null)
+            results = results + String.format("\n Off-heap events size: %2.3f mb", arena.size() / 1024d / 1024d);
+
+        if (topKeys > 0)
+            results = results + String.format("\n Top keys limit: %s, events folded into other keys: %s, "
+                    + "max count error: %s", topKeys, folded, maxError);
+
         if (mapped == reduced)
             results = results + String.format("\nHeap log scanning has been finished sucessfull! "
                     + "Total events reduced: %s (equals mapped)", reduced);
@@ -1,7 +1,11 @@
 package org.v8LogScanner.rgx;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -11,21 +15,51 @@ public class HeapSelector implements IRgxSelector {
 
     private ConcurrentMap<String, List<String>> rgxResult = new ConcurrentHashMap<>();
 
+    // Index of keys sorted by the size of their groups descending. Each item packs the inverted size
+    // into high bits and the key id into low bits so the plain ascending order of items is the order of pages
+    private List<String> keys = new ArrayList<>();
+    private Map<String, Integer> ids = new HashMap<>();
+    private long[] index = new long[0];
+    private int indexSize = 0;
+    // sizes of the groups when they were indexed, the list may be changed in place before it is put again
+    private int[] indexedSizes = new int[0];
+
     public void setResult(ConcurrentMap<String, List<String>> _rgxResult) {
         rgxResult = _rgxResult;
+        buildIndex();
     }
 
     public ConcurrentMap<String, List<String>> getResult() {
         return rgxResult;
     }
 
+    /**
+     * Adds or replaces the group of the key keeping the index sorted
+     */
+    public void put(String key, List<String> events) {
+
+        rgxResult.put(key, events);
+        Integer id = ids.get(key);
+        if (id != null)
+            removeItem(indexItem(indexedSizes[id], id));
+        else {
+            id = keys.size();
+            ids.put(key, id);
+            keys.add(key);
+            if (id == indexedSizes.length)
+                indexedSizes = Arrays.copyOf(indexedSizes, Math.max(16, id * 2));
+        }
+        indexedSizes[id] = events.size();
+        insertItem(indexItem(events.size(), id));
+    }
+
     public List<SelectorEntry> select(int count, SelectDirections direction) {
 
-        if (direction == SelectDirections.FORWARD && cursorIndex == rgxResult.size() - 1)
+        if (direction == SelectDirections.FORWARD && cursorIndex == indexSize - 1)
             cursorIndex = 0;
 
         if (direction == SelectDirections.BACKWARD && cursorIndex == 0)
-            cursorIndex = Math.max(rgxResult.size() - count, 0);
+            cursorIndex = Math.max(indexSize - count, 0);
         else if (direction == SelectDirections.BACKWARD) {
             count = Math.min(cursorIndex, count);
             cursorIndex = cursorIndex - count;
@@ -33,20 +67,15 @@ public class HeapSelector implements IRgxSelector {
 
         List<SelectorEntry> selected = new ArrayList<>();
 
-        rgxResult.
-                keySet().
-                stream().
-                sorted((n1, n2) -> {
-                    return -Integer.compare(rgxResult.get(n1).size(), rgxResult.get(n2).size());
-                }).
-                skip(cursorIndex).
-                limit(count).forEachOrdered(entryKey -> {
-            SelectorEntry row = new SelectorEntry(entryKey, rgxResult.get(entryKey));
+        int last = (int) Math.min((long) cursorIndex + count, indexSize);
+        for (int i = cursorIndex; i < last; i++) {
+            String entryKey = keys.get((int) index[i]);
+            SelectorEntry row = new SelectorEntry(entryKey, materialize(rgxResult.get(entryKey)));
             selected.add(row);
-        });
+        }
 
         if (direction == SelectDirections.FORWARD)
-            cursorIndex = Math.min(cursorIndex + selected.size(), rgxResult.size() - 1);
+            cursorIndex = Math.min(cursorIndex + selected.size(), indexSize - 1);
 
         if (cursorIndex < 0)
             cursorIndex = 0;
@@ -54,14 +83,69 @@ public class HeapSelector implements IRgxSelector {
         return selected;
     }
 
+    // Lists that are not random access read events from disk so they are loaded
+    // only when selected and the SelectorEntry is always serializable
+    private List<String> materialize(List<String> events) {
+        return events instanceof RandomAccess ? events : new ArrayList<>(events);
+    }
+
     public int cursorIndex() {
         return cursorIndex;
     }
 
     public void clearResult() {
         rgxResult.clear();
+        keys = new ArrayList<>();
+        ids = new HashMap<>();
+        index = new long[0];
+        indexSize = 0;
+        indexedSizes = new int[0];
         cursorIndex = 0;
     }
 
+    // PRIVATE
+
+    private void buildIndex() {
+
+        keys = new ArrayList<>(rgxResult.keySet());
+        index = new long[keys.size()];
+        indexSize = index.length;
+        indexedSizes = new int[indexSize];
+        ids = new HashMap<>(indexSize * 2);
+        for (int id = 0; id < indexSize; id++) {
+            ids.put(keys.get(id), id);
+            indexedSizes[id] = rgxResult.get(keys.get(id)).size();
+            index[id] = indexItem(indexedSizes[id], id);
+        }
+        Arrays.sort(index);
+    }
+
+    private static long indexItem(int size, int id) {
+        return ((long) (Integer.MAX_VALUE - size) << 32) | id;
+    }
+
+    private void insertItem(long item) {
+
+        int pos = Arrays.binarySearch(index, 0, indexSize, item);
+        if (pos >= 0)
+            return;
+        pos = -pos - 1;
+
+        if (indexSize == index.length)
+            index = Arrays.copyOf(index, Math.max(16, indexSize * 2));
+        System.arraycopy(index, pos, index, pos + 1, indexSize - pos);
+        index[pos] = item;
+        indexSize++;
+    }
+
+    private void removeItem(long item) {
+
+        int pos = Arrays.binarySearch(index, 0, indexSize, item);
+        if (pos < 0)
+            return;
+
+        System.arraycopy(index, pos + 1, index, pos, indexSize - pos - 1);
+        indexSize--;
+    }
 
 }
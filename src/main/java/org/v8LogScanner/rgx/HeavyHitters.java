@@ -0,0 +1,157 @@
+package org.v8LogScanner.rgx;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Bounded-memory grouping based on the weighted Space-Saving algorithm.
+ * Keeps at most "capacity" keys. When a new key arrives and the table is full
+ * the key with the smallest count is evicted, its events are folded into the
+ * "other" bucket and the new key inherits the evicted count as its error bound.
+ * Any key which real count exceeds total / capacity is guaranteed to be kept.
+ * Only the first "sampleSize" events of each key are kept, so the memory is bounded
+ * by the number of keys, the count of the key is reported separately from its sample.
+ */
+public class HeavyHitters {
+
+    public static final String OTHER_KEY = "OTHER KEYS";
+    public static final int SAMPLE_SIZE = 100;
+
+    private final int capacity;
+    private final int sampleSize;
+    private final Map<String, Counter> counters = new HashMap<>();
+    private final TreeSet<Counter> byCount = new TreeSet<>();
+    private long total = 0;
+    private long folded = 0;
+    private long foldedKeys = 0;
+    private long seq = 0;
+
+    public HeavyHitters(int capacity) {
+        this(capacity, SAMPLE_SIZE);
+    }
+
+    public HeavyHitters(int capacity, int sampleSize) {
+        this.capacity = Math.max(capacity, 1);
+        this.sampleSize = Math.max(sampleSize, 0);
+    }
+
+    public void offer(String key, List<String> events) {
+        offer(key, events.size(), events);
+    }
+
+    /**
+     * @param weight - count of the events of the key
+     * @param sample - events of the key added to its sample while the sample is not full
+     */
+    public synchronized void offer(String key, long weight, List<String> sample) {
+
+        total += weight;
+
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            byCount.remove(counter);
+            counter.count += weight;
+            counter.addSample(sample);
+            byCount.add(counter);
+            return;
+        }
+
+        long error = 0;
+        if (counters.size() >= capacity) {
+            Counter min = byCount.pollFirst();
+            counters.remove(min.key);
+            folded += min.count - min.error;
+            foldedKeys++;
+            error = min.count;
+        }
+
+        counter = new Counter(key, error + weight, error, seq++);
+        counter.addSample(sample);
+        counters.put(key, counter);
+        byCount.add(counter);
+    }
+
+    /**
+     * Maximum overestimation of any count kept in the table
+     */
+    public synchronized long maxError() {
+        if (counters.size() < capacity || byCount.isEmpty())
+            return 0;
+        return byCount.first().count;
+    }
+
+    public synchronized long getTotal() {
+        return total;
+    }
+
+    public synchronized long getFolded() {
+        return folded;
+    }
+
+    /**
+     * Builds the result suitable for the HeapSelector. Keys with a non-zero error
+     * are marked with their count bounds, keys with more events than their sample are marked
+     * with their count, evicted events are represented by the single "other" key without event texts.
+     */
+    public synchronized ConcurrentMap<String, List<String>> getResult() {
+
+        ConcurrentMap<String, List<String>> result = new ConcurrentHashMap<>();
+        for (Counter counter : counters.values()) {
+            String key = counter.key;
+            if (counter.error > 0)
+                key = String.format("%s (approx. count: %s..%s)",
+                        key, counter.count - counter.error, counter.count);
+            else if (counter.count > counter.events.size())
+                key = String.format("%s (count: %s)", key, counter.count);
+            result.put(key, counter.events);
+        }
+        if (folded > 0)
+            result.put(String.format("%s: %s events in %s evicted keys", OTHER_KEY, folded, foldedKeys),
+                    new ArrayList<>());
+
+        return result;
+    }
+
+    public synchronized void clear() {
+        counters.clear();
+        byCount.clear();
+        total = 0;
+        folded = 0;
+        foldedKeys = 0;
+        seq = 0;
+    }
+
+    private class Counter implements Comparable<Counter> {
+
+        private final String key;
+        private final long error;
+        private final long seq;
+        private long count;
+        private final List<String> events = new ArrayList<>();
+
+        Counter(String key, long count, long error, long seq) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+            this.seq = seq;
+        }
+
+        private void addSample(List<String> sample) {
+            for (int i = 0; i < sample.size() && events.size() < sampleSize; i++)
+                events.add(sample.get(i));
+        }
+
+        @Override
+        public int compareTo(Counter o) {
+            int compared = Long.compare(count, o.count);
+            if (compared == 0)
+                compared = Long.compare(seq, o.seq);
+            return compared;
+        }
+    }
+}
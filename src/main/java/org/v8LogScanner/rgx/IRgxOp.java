@@ -13,6 +13,8 @@ public interface IRgxOp {
 
     void execute(List<String> logFiles);
 
+    void execute(List<String> logFiles, ScanCancellation cancellation);
+
     ArrayList<String> getProcessingInfo();
 
     String getFinalInfo(String logDescr);
@@ -0,0 +1,99 @@
+package org.v8LogScanner.rgx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Concurrent dictionary of grouping keys. Each key text is reduced to a 128-bit fingerprint
+ * which is mapped to the int id of the key. The first text of a key is stored once and
+ * the equal texts computed for the next events can be dropped right after fingerprinting.
+ * Fingerprints are trusted without comparing texts as 128-bit collisions are negligible.
+ */
+public class KeyDictionary {
+
+    private final ConcurrentMap<Fingerprint, Integer> ids = new ConcurrentHashMap<>();
+    private final List<String> keys = new ArrayList<>();
+
+    public int idOf(String key) {
+
+        Fingerprint fingerprint = new Fingerprint(key);
+        Integer id = ids.get(fingerprint);
+        if (id != null)
+            return id;
+
+        synchronized (keys) {
+            id = ids.get(fingerprint);
+            if (id == null) {
+                id = keys.size();
+                keys.add(key);
+                ids.put(fingerprint, id);
+            }
+        }
+        return id;
+    }
+
+    public String keyOf(int id) {
+        synchronized (keys) {
+            return keys.get(id);
+        }
+    }
+
+    public int size() {
+        synchronized (keys) {
+            return keys.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (keys) {
+            ids.clear();
+            keys.clear();
+        }
+    }
+
+    private static final class Fingerprint {
+
+        private final long hi;
+        private final long lo;
+
+        Fingerprint(String text) {
+            // FNV-1a and a multiplicative hash of the same chars with the finalizer of the murmur3
+            long h1 = 0xcbf29ce484222325L;
+            long h2 = 0x9e3779b97f4a7c15L ^ text.length();
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                h1 = (h1 ^ c) * 0x100000001b3L;
+                h2 = (h2 + c) * 0xc6a4a7935bd1e995L;
+                h2 ^= h2 >>> 47;
+            }
+            hi = mix(h1);
+            lo = mix(h2);
+        }
+
+        private static long mix(long h) {
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (hi ^ (hi >>> 32));
+        }
+
+        @Override
+        public boolean equals(Object x) {
+            if (x == this)
+                return true;
+            if (!(x instanceof Fingerprint))
+                return false;
+            Fingerprint other = (Fingerprint) x;
+            return hi == other.hi && lo == other.lo;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package org.v8LogScanner.rgx;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reader passing the batches of events split by the source reader on the splitting thread.
+ * The source reads and splits the next batches while the ops filter and reduce the current one,
+ * the bounded queue between them stops the splitting when the ops fall behind.
+ * The sizes of the batches and of the buffer of the source are taken from the adaptive batches before each batch.
+ * The reader stops returning batches as soon as the scan is cancelled.
+ * The source is not closed by this reader.
+ */
+class PipelineReader extends RgxReader {
+
+    private static final Batch END = new Batch(new ArrayList<>(), null, null, null);
+
+    private final RgxReader source;
+    private final AdaptiveBatches adaptive;
+    private final ScanCancellation cancellation;
+    private final BlockingQueue<Batch> batches;
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private Thread splitter = null;
+    private volatile boolean closed = false;
+    private Batch current = null;
+
+    /**
+     * @param depth - batches split ahead of the ops
+     */
+    PipelineReader(RgxReader source, ExecutorService splitting, int depth, AdaptiveBatches adaptive,
+                   ScanCancellation cancellation) {
+
+        super(CharBuffer.allocate(0));
+
+        this.source = source;
+        this.adaptive = adaptive;
+        this.cancellation = cancellation;
+        this.batches = new ArrayBlockingQueue<>(depth);
+        splitting.execute(this::split);
+    }
+
+    @Override
+    public boolean next() throws IOException {
+
+        if (current == END)
+            return false;
+
+        Batch batch = null;
+        try {
+            // the splitting thread may wait for the disk or the throttle, so the cancellation is checked meanwhile
+            while (batch == null) {
+                if (cancellation.isCancelled()) {
+                    current = END;
+                    return false;
+                }
+                batch = batches.poll(100, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        if (batch.error != null) {
+            current = END;
+            throw batch.error;
+        }
+        current = batch;
+        return current != END;
+    }
+
+    @Override
+    public ArrayList<String> getResult() {
+        return current.events;
+    }
+
+    @Override
+    public long getOffset(int index) {
+        return current.offsets[index];
+    }
+
+    @Override
+    public int getLength(int index) {
+        return current.lengths[index];
+    }
+
+    @Override
+    boolean tracksOffsets() {
+        return source.tracksOffsets();
+    }
+
+    /**
+     * Stops the splitting thread and waits for it to leave the source
+     */
+    @Override
+    public void close() {
+
+        synchronized (this) {
+            closed = true;
+            if (splitter != null)
+                splitter.interrupt();
+        }
+        batches.clear();
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                finished.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    // PRIVATE
+
+    private void split() {
+
+        synchronized (this) {
+            if (closed) {
+                finished.countDown();
+                return;
+            }
+            splitter = Thread.currentThread();
+        }
+
+        try {
+            boolean offsets = source.tracksOffsets();
+            while (!cancellation.isCancelled()) {
+                source.tune(adaptive.batchSize(), adaptive.bufferSize());
+                if (!source.next())
+                    break;
+                ArrayList<String> events = new ArrayList<>(source.getResult());
+                long[] eventOffsets = offsets ? new long[events.size()] : null;
+                int[] eventLengths = offsets ? new int[events.size()] : null;
+                for (int i = 0; offsets && i < events.size(); i++) {
+                    eventOffsets[i] = source.getOffset(i);
+                    eventLengths[i] = source.getLength(i);
+                }
+                if (!put(new Batch(events, eventOffsets, eventLengths, null)))
+                    return;
+            }
+            put(END);
+        } catch (IOException e) {
+            try {
+                put(new Batch(null, null, null, e));
+            } catch (InterruptedException ignored) {
+                // the reader is closed
+            }
+        } catch (InterruptedException e) {
+            // the reader is closed
+        } finally {
+            synchronized (this) {
+                splitter = null;
+                // the interruption must not reach the next task of the thread
+                Thread.interrupted();
+            }
+            finished.countDown();
+        }
+    }
+
+    // false if the reader is closed and the rest of batches is not needed
+    private boolean put(Batch batch) throws InterruptedException {
+        while (!closed) {
+            if (batches.offer(batch, 100, TimeUnit.MILLISECONDS))
+                return true;
+        }
+        return false;
+    }
+
+    private static class Batch {
+
+        private final ArrayList<String> events;
+        private final long[] offsets;
+        private final int[] lengths;
+        private final IOException error;
+
+        private Batch(ArrayList<String> events, long[] offsets, int[] lengths, IOException error) {
+            this.events = events;
+            this.offsets = offsets;
+            this.lengths = lengths;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package org.v8LogScanner.rgx;
+
+import org.v8LogScanner.commonly.Constants;
+import org.v8LogScanner.commonly.ExcpReporting;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Persistent cache of the scan results. The cache directory contains a catalog for every
+ * profile fingerprint, the catalog keeps the partial result of each scanned log file.
+ * The partial result is valid while the path, the size and the modification time of the file
+ * are the same, so only changed files are rescanned and their results are merged with the cached ones.
+ */
+public class ResultCache {
+
+    // changes when the format of partial results or the way they are computed changes
+    private static final String FORMAT_VERSION = "2";
+
+    private final Path dir;
+
+    public ResultCache(String cacheDir, ScanProfile profile) {
+        this.dir = Paths.get(cacheDir, fingerprint(profile));
+    }
+
+    /**
+     * Canonical hash of the compiled profile. Log paths, dates and the profile name
+     * define only the set of files so they are not included.
+     */
+    public static String fingerprint(ScanProfile profile) {
+
+        StringBuilder text = new StringBuilder(FORMAT_VERSION);
+        text.append('\n').append(profile.getRgxOp());
+        text.append('\n').append(profile.getGroupType());
+        text.append('\n').append(profile.getSortingProp());
+        text.append('\n').append(profile.getLimit());
+        text.append('\n').append(profile.getTopKeys());
+        text.append('\n').append(profile.getResultStorage());
+        text.append('\n').append(profile.getRgxExp());
+
+        for (RegExp rgx : profile.getRgxList()) {
+            text.append('\n').append(rgx.getEventType());
+            text.append('\n').append(rgx.compileSpan(RegExp.PropTypes.ANY, RegExp.PropTypes.ANY).pattern());
+            text.append('\n').append(rgx.getGroupingProps());
+            text.append('\n').append(rgx.getUnicRgxPropText());
+            text.append('\n').append(new TreeMap<>(rgx.getIntegerFilters()));
+            text.append('\n').append(new TreeMap<>(rgx.getIntegerCompTypes()));
+        }
+        return hash(text.toString());
+    }
+
+    /**
+     * Returns the partial result of the log file or null if the file is not cached or has been changed
+     */
+    public Map<String, List<String>> load(String logFile) {
+
+        Path part = partOf(logFile);
+        if (!Files.exists(part))
+            return null;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(part.toFile()), 1024 * 64))) {
+
+            if (!readText(in).equals(fileStamp(logFile)))
+                return null;
+
+            Map<String, List<String>> partial = new HashMap<>();
+            int keys = in.readInt();
+            for (int i = 0; i < keys; i++) {
+                String key = readText(in);
+                int size = in.readInt();
+                List<String> events = new ArrayList<>(size);
+                for (int j = 0; j < size; j++)
+                    events.add(readText(in));
+                partial.put(key, events);
+            }
+            return partial;
+        } catch (IOException e) {
+            ExcpReporting.LogError(this.getClass(), e);
+            return null;
+        }
+    }
+
+    /**
+     * @param stamp - stamp of the log file taken before the file was read
+     */
+    public void save(String logFile, String stamp, Map<String, List<String>> partial) {
+
+        Path part = partOf(logFile);
+        try {
+            Files.createDirectories(dir);
+            Path tmp = Files.createTempFile(dir, "part", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmp.toFile()), 1024 * 64))) {
+                writeText(out, stamp);
+                out.writeInt(partial.size());
+                for (Map.Entry<String, List<String>> entry : partial.entrySet()) {
+                    writeText(out, entry.getKey());
+                    out.writeInt(entry.getValue().size());
+                    for (String event : entry.getValue())
+                        writeText(out, event);
+                }
+            }
+            Files.move(tmp, part, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            ExcpReporting.LogError(this.getClass(), e);
+        }
+    }
+
+    // PRIVATE
+
+    private Path partOf(String logFile) {
+        return dir.resolve(hash(Paths.get(logFile).toAbsolutePath().normalize().toString()) + ".part");
+    }
+
+    // path, size and modification time of the log file
+    static String fileStamp(String logFile) throws IOException {
+        Path path = Paths.get(logFile).toAbsolutePath().normalize();
+        return String.format("%s|%s|%s", path, Files.size(path), Files.getLastModifiedTime(path).toMillis());
+    }
+
+    static String hash(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] bytes = digest.digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 16; i++)
+                hex.append(String.format("%02x", bytes[i]));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeText(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(Constants.logsCharset);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readText(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, Constants.logsCharset);
+    }
+}
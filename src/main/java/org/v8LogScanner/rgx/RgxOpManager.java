@@ -5,7 +5,9 @@ import org.v8LogScanner.commonly.Strokes;
 import org.v8LogScanner.rgx.RegExp.PropTypes;
 
 import java.math.BigInteger;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
@@ -48,6 +50,78 @@ public class RgxOpManager {
         return Long.compare(timeD1, timeD2);
     }
 
+    /**
+     * Returns time of the event in the mmssffffff format as a number
+     * so it can be compared the same way as the compare() method does.
+     * Returns 0 if the event does not start with the time.
+     */
+    public static long getTimeKey(String input) {
+
+        if (input.length() < 12 || !Strokes.isNumericAtIndex(input, 0))
+            return 0;
+
+        long time = 0;
+        for (int i = 0; i < 12; i++) {
+            char c = input.charAt(i);
+            if (c == ':' || c == '.')
+                continue;
+            if (c < '0' || c > '9')
+                return 0;
+            time = time * 10 + (c - '0');
+        }
+        return time;
+    }
+
+    /**
+     * Returns the hour of the log file in the yyMMddHH format taken from the file name
+     * or 0 if the name does not start with the hour.
+     */
+    public static long getFileHour(String logFile) {
+
+        String fileName = Paths.get(logFile).getFileName().toString();
+        if (fileName.length() < 8)
+            return 0;
+
+        long hour = 0;
+        for (int i = 0; i < 8; i++) {
+            char c = fileName.charAt(i);
+            if (c < '0' || c > '9')
+                return 0;
+            hour = hour * 10 + (c - '0');
+        }
+        return hour;
+    }
+
+    /**
+     * Absolute timestamp of the event in the yyMMddHHmmssffffff format as a number.
+     * Events of different log files are ordered by it correctly unlike the compare() method
+     * which considers only minutes and seconds.
+     */
+    public static long getTimestamp(String input, long fileHour) {
+        return fileHour * 10_000_000_000L + getTimeKey(input);
+    }
+
+    /**
+     * Stable sorting of events in the same order as the compare() method gives.
+     * Time of each event is parsed once instead of parsing it in every comparison.
+     */
+    public static void sortByTime(List<String> events) {
+
+        int size = events.size();
+        // mmssffffff takes 33 bits so the rest of the long is enough for the index
+        if (size < 2 || size >= 1 << 30)
+            return;
+
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++)
+            keys[i] = (getTimeKey(events.get(i)) << 30) | i;
+        Arrays.sort(keys);
+
+        Object[] sorted = events.toArray();
+        for (int i = 0; i < size; i++)
+            events.set(i, (String) sorted[(int) (keys[i] & ((1 << 30) - 1))]);
+    }
+
     /**
      * Delete found chars from the source string.
      */
@@ -194,7 +268,7 @@ public class RgxOpManager {
         return isMatch;
     }
 
-    private static boolean MatchesIntFilter(BigInteger inputVal, List<String> filterVals, ComparisonTypes compType) {
+    static boolean MatchesIntFilter(BigInteger inputVal, List<String> filterVals, ComparisonTypes compType) {
         boolean isMatch = true;
 
         if (compType == ComparisonTypes.range) {
@@ -241,6 +315,15 @@ public class RgxOpManager {
         return sortingKey;
     }
 
+    // event name is placed between the duration and the stack level: 52:13.872002-0,EXCP,0,...
+    public static String getEventName(String input) {
+        int start = input.indexOf(',');
+        if (start < 0)
+            return "";
+        int end = input.indexOf(',', start + 1);
+        return end < 0 ? input.substring(start + 1) : input.substring(start + 1, end);
+    }
+
     public static BigInteger getDuration(String input) {
         BigInteger duration = new BigInteger("0");
         Matcher durationMatcher = durationPattern.matcher(input);
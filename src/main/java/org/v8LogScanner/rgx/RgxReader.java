@@ -4,12 +4,15 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -47,6 +50,29 @@ public class RgxReader implements AutoCloseable {
     //The filtered logs content returned by RgxReader.
     private ArrayList<String> result;
 
+    // When true the reader keeps byte offset and byte length of each event in the file.
+    // Offsets are calculated for the utf-8 charset only.
+    private boolean trackOffsets = false;
+
+    // Byte offset in the file of the char at the current position
+    private long bytePos = 0;
+
+    private long[] offsets = new long[0];
+
+    private int[] lengths = new int[0];
+
+    private Charset charset;
+
+    // restricts the rate of reading the file, null if reading is not throttled
+    Throttle throttle = null;
+
+    // Length of the time mm:ss.ffffff starting each event
+    private static final int TIME_LENGTH = 12;
+
+    private static final int PROBE_SIZE = 1024 * 16;
+
+    private static final int BOM_LENGTH = 3;
+
     public RgxReader(String fileName, Charset charset, int _limit) throws FileNotFoundException {
 
         this(CharBuffer.allocate(1024));
@@ -57,6 +83,7 @@ public class RgxReader implements AutoCloseable {
         reader = Channels.newReader(channel, decoder, -1);
         buf.limit(0);
         limit = _limit;
+        this.charset = charset;
     }
 
     public RgxReader(CharBuffer source) {
@@ -71,6 +98,129 @@ public class RgxReader implements AutoCloseable {
         result = new ArrayList<>(limit);
     }
 
+    /**
+     * Turns on calculation of byte offsets and lengths of the read events
+     * which can be fetched by getOffset() and getLength() methods.
+     */
+    public RgxReader trackOffsets() {
+        trackOffsets = true;
+        return this;
+    }
+
+    // whether getOffset() and getLength() return positions of the read events
+    boolean tracksOffsets() {
+        return trackOffsets;
+    }
+
+    /**
+     * Changes the number of events returned by the next calls of next() and grows the buffer
+     * to the given number of chars. The chars which are not split yet are kept.
+     */
+    void tune(int limit, int bufferSize) {
+
+        this.limit = Math.max(limit, 1);
+        if (reader == null || bufferSize <= buf.capacity())
+            return;
+
+        CharBuffer newBuf = CharBuffer.allocate(bufferSize);
+        CharBuffer chars = buf.duplicate();
+        chars.position(0);
+        newBuf.put(chars);
+        newBuf.flip();
+        newBuf.position(buf.position());
+        buf = newBuf;
+        matcher.reset(buf);
+    }
+
+    /**
+     * Takes the tokens of the throttle for every read of the file.
+     * The method must be called before other methods changing the source of the reader.
+     */
+    RgxReader throttle(Throttle throttle) throws IOException {
+
+        if (reader == null)
+            throw new IncorrectReaderMethod();
+
+        this.throttle = throttle;
+        reader = Channels.newReader(throttle.wrap(fs.getChannel()), charset.newDecoder(), -1);
+        return this;
+    }
+
+    /**
+     * Restricts reading to the bytes of the file from the start (inclusive) to the end (exclusive) offset.
+     * Both offsets must be placed at the event starts or at the end of the file.
+     * The method must be called before the first call of next().
+     */
+    public RgxReader range(long start, long end) throws IOException {
+
+        if (reader == null)
+            throw new IncorrectReaderMethod();
+
+        FileChannel channel = fs.getChannel();
+        channel.position(start);
+        ReadableByteChannel bounded = new ReadableByteChannel() {
+
+            private long remaining = end - start;
+
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                if (remaining <= 0)
+                    return -1;
+                int dstLimit = dst.limit();
+                if (dst.remaining() > remaining)
+                    dst.limit(dst.position() + (int) remaining);
+                int n = channel.read(dst);
+                dst.limit(dstLimit);
+                if (n > 0)
+                    remaining -= n;
+                return n;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return channel.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+        reader = Channels.newReader(throttle == null ? bounded : throttle.wrap(bounded), charset.newDecoder(), -1);
+        bytePos = start;
+        return this;
+    }
+
+    /**
+     * Reads the file from the channel instead of the file itself, the channel must return all bytes of the file.
+     * The method must be called before the first call of next().
+     */
+    public RgxReader source(ReadableByteChannel channel) throws IOException {
+
+        if (reader == null)
+            throw new IncorrectReaderMethod();
+
+        reader = Channels.newReader(throttle == null ? channel : throttle.wrap(channel), charset.newDecoder(), -1);
+        return this;
+    }
+
+    /**
+     * Restricts reading to the events with the time key (mmssffffff) from the first (inclusive)
+     * to the last (exclusive) one. Events of the log file are ordered by time so the bounds
+     * are found by the binary search probing the file at several positions without reading it fully.
+     * The method must be called before the first call of next().
+     */
+    public RgxReader seek(long fromTimeKey, long toTimeKey) throws IOException {
+
+        if (reader == null)
+            throw new IncorrectReaderMethod();
+
+        FileChannel channel = fs.getChannel();
+        long start = searchEvent(channel, fromTimeKey);
+        long end = Math.max(start, searchEvent(channel, toTimeKey));
+        return range(start, end);
+    }
+
     public boolean next() throws IOException {
 
         if (reader == null)
@@ -88,8 +238,9 @@ public class RgxReader implements AutoCloseable {
                 return true;
 
             if (needInput) {
-                // make space
-                if (buf.limit() == buf.capacity()) {
+                // make space. The matched text is dropped also when the buffer is not full
+                // as the reader may return fewer chars than the buffer can hold
+                if (buf.limit() == buf.capacity() || position > 0) {
                     makeSpace();
                 }
 
@@ -102,6 +253,8 @@ public class RgxReader implements AutoCloseable {
 
                 if (n == -1 && !remaining.isEmpty()) {
                     result.add(remaining.trim());
+                    if (trackOffsets)
+                        addOffset(bytePos, utf8Length(remaining, 0, remaining.length()));
                     remaining = "";
                     return true;
                 } else if (n == -1 && remaining.isEmpty())
@@ -122,9 +275,14 @@ public class RgxReader implements AutoCloseable {
         while (matcher.lookingAt()) {
 
             String s = matcher.group();
+            int bytes = trackOffsets ? utf8Length(buf, position, matcher.end()) : 0;
             //!! bad fix *+ matching empty string
-            if (s.length() > 1)
+            if (s.length() > 1) {
                 result.add(s.trim());
+                if (trackOffsets)
+                    addOffset(bytePos, bytes);
+            }
+            bytePos += bytes;
             position = matcher.end();
 
             if (limit > 0 && result.size() >= limit) {
@@ -163,10 +321,120 @@ public class RgxReader implements AutoCloseable {
         matcher.reset(buf);
     }
 
+    private void addOffset(long offset, int length) {
+        int index = result.size() - 1;
+        if (index >= offsets.length) {
+            int newSize = Math.max(index + 1, offsets.length * 2);
+            offsets = Arrays.copyOf(offsets, newSize);
+            lengths = Arrays.copyOf(lengths, newSize);
+        }
+        offsets[index] = offset;
+        lengths[index] = length;
+    }
+
+    private static int utf8Length(CharSequence chars, int start, int end) {
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            char c = chars.charAt(i);
+            if (c < 0x80)
+                length++;
+            else if (c < 0x800)
+                length += 2;
+            else if (Character.isHighSurrogate(c) && i + 1 < end) {
+                length += 4;
+                i++;
+            } else
+                length += 3;
+        }
+        return length;
+    }
+
+    // Offset of the first event which time key is not less than the given one or the file size
+    private static long searchEvent(FileChannel channel, long timeKey) throws IOException {
+
+        long lo = 0;
+        long hi = channel.size();
+        while (lo < hi) {
+            long mid = lo + (hi - lo) / 2;
+            long[] event = eventAfter(channel, mid);
+            if (event == null || event[1] >= timeKey)
+                hi = mid;
+            else
+                lo = event[0] + 1;
+        }
+        long[] event = eventAfter(channel, lo);
+        return event == null ? channel.size() : event[0];
+    }
+
+    // Offset and time key of the first event starting at the line beginning at or after the position
+    private static long[] eventAfter(FileChannel channel, long position) throws IOException {
+
+        ByteBuffer probe = ByteBuffer.allocate(PROBE_SIZE);
+        long pos = position;
+        while (true) {
+            // the previous byte is read to check the line beginning
+            long from = Math.max(pos - 1, 0);
+            probe.clear();
+            int n = channel.read(probe, from);
+            if (n <= 0)
+                return null;
+            byte[] bytes = probe.array();
+            for (int i = (int) (pos - from); i + TIME_LENGTH <= n; i++) {
+                long offset = from + i;
+                boolean lineStart = offset == 0 || bytes[i - 1] == '\n'
+                        || offset == BOM_LENGTH && isBom(channel);
+                if (lineStart && isTime(bytes, i))
+                    return new long[]{offset, timeKey(bytes, i)};
+            }
+            if (n < PROBE_SIZE)
+                return null;
+            pos = from + n - TIME_LENGTH + 1;
+        }
+    }
+
+    private static boolean isTime(byte[] bytes, int i) {
+        for (int j = 0; j < TIME_LENGTH; j++) {
+            byte b = bytes[i + j];
+            if (j == 2 ? b != ':' : j == 5 ? b != '.' : (b < '0' || b > '9'))
+                return false;
+        }
+        return true;
+    }
+
+    private static long timeKey(byte[] bytes, int i) {
+        long time = 0;
+        for (int j = 0; j < TIME_LENGTH; j++) {
+            if (j != 2 && j != 5)
+                time = time * 10 + (bytes[i + j] - '0');
+        }
+        return time;
+    }
+
+    private static boolean isBom(FileChannel channel) throws IOException {
+        ByteBuffer bom = ByteBuffer.allocate(BOM_LENGTH);
+        return channel.read(bom, 0) == BOM_LENGTH
+                && bom.get(0) == (byte) 0xEF && bom.get(1) == (byte) 0xBB && bom.get(2) == (byte) 0xBF;
+    }
+
     public ArrayList<String> getResult() {
         return result;
     }
 
+    /**
+     * Byte offset in the file of the event with the index from the last result.
+     */
+    public long getOffset(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * Byte length of the event with the index from the last result
+     * including whitespaces trimmed from the event.
+     */
+    public int getLength(int index) {
+        return lengths[index];
+    }
+
     public void close() throws IOException {
         fs.close();
         reader.close();
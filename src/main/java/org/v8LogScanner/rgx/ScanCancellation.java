@@ -0,0 +1,46 @@
+package org.v8LogScanner.rgx;
+
+/**
+ * Token cancelling the running scan. The scan checks the token before each file and each batch, the reader
+ * of the batches and the parallel stages of the ops check it too. When the token is cancelled or its deadline
+ * has passed, the scan stops reading, closes its files, stops its threads and drops the partial results.
+ * The token may be cancelled from any thread.
+ */
+public class ScanCancellation {
+
+    // System.nanoTime() of the deadline, 0 if the scan has no deadline
+    private final long deadline;
+    private volatile String reason = null;
+
+    public ScanCancellation() {
+        this(0);
+    }
+
+    /**
+     * @param timeout - milliseconds before the deadline of the scan, 0 means no deadline
+     */
+    public ScanCancellation(long timeout) {
+        deadline = timeout > 0 ? System.nanoTime() + timeout * 1_000_000L : 0;
+    }
+
+    public synchronized void cancel(String reason) {
+        if (this.reason == null)
+            this.reason = reason;
+    }
+
+    public boolean isCancelled() {
+
+        if (reason != null)
+            return true;
+        if (deadline != 0 && System.nanoTime() - deadline >= 0) {
+            cancel("the deadline of the scan has passed");
+            return true;
+        }
+        return false;
+    }
+
+    // null if the scan is not cancelled
+    public String reason() {
+        return isCancelled() ? reason : null;
+    }
+}
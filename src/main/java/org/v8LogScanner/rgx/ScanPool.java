@@ -0,0 +1,134 @@
+package org.v8LogScanner.rgx;
+
+import org.v8LogScanner.commonly.Constants;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of threads running the parallel stages of the scan. The scan is started inside the pool
+ * so the parallel streams of the ops run on its threads instead of the common pool of the JVM.
+ * Scans without their own parallelism share the pool of the server sized by Constants.scanParallelism,
+ * the scan with the parallelism of its profile runs on the dedicated pool which is shut down after the scan.
+ */
+class ScanPool implements AutoCloseable {
+
+    private static final String SHARED_NAME = "v8LogScanner-scan";
+    private static final AtomicInteger poolIds = new AtomicInteger();
+    private static ForkJoinPool shared = null;
+
+    private final ForkJoinPool pool;
+    private final String name;
+    private final boolean dedicated;
+    private volatile long maxQueued = 0;
+
+    private ScanPool(ForkJoinPool pool, String name, boolean dedicated) {
+        this.pool = pool;
+        this.name = name;
+        this.dedicated = dedicated;
+    }
+
+    /**
+     * @param parallelism - threads of the dedicated pool, 0 means the shared pool of the server
+     */
+    static ScanPool of(int parallelism) {
+
+        if (parallelism <= 0)
+            return new ScanPool(shared(), SHARED_NAME, false);
+
+        String name = SHARED_NAME + "-" + poolIds.incrementAndGet();
+        return new ScanPool(new ForkJoinPool(parallelism, threadFactory(name), null, false), name, true);
+    }
+
+    /**
+     * Runs the scan on the threads of the pool and waits for it. When the waiting thread is interrupted
+     * the scan is cancelled and the method returns only after the scan has stopped.
+     */
+    void run(Runnable scan, ScanCancellation cancellation) {
+
+        // the scan is cancelled before its start or runs to the end before the method returns
+        AtomicBoolean started = new AtomicBoolean();
+        CountDownLatch finished = new CountDownLatch(1);
+        Future<?> future = pool.submit(() -> {
+            if (!started.compareAndSet(false, true))
+                return;
+            try {
+                scan.run();
+            } finally {
+                finished.countDown();
+            }
+        });
+
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            cancellation.cancel("the scan is interrupted");
+            future.cancel(true);
+            if (!started.compareAndSet(false, true))
+                awaitUninterruptibly(finished);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // remembers the depth of the queues, tasks queued by other scans of the shared pool are counted too
+    void sample() {
+        maxQueued = Math.max(maxQueued, pool.getQueuedTaskCount() + pool.getQueuedSubmissionCount());
+    }
+
+    // threads of the pool running or stealing tasks, threads of other scans of the shared pool are counted too
+    int activeThreads() {
+        return pool.getActiveThreadCount();
+    }
+
+    String describe() {
+        return String.format("pool %s: parallelism %s, threads %s, max queued tasks %s, steals %s",
+                name, pool.getParallelism(), pool.getPoolSize(), maxQueued, pool.getStealCount());
+    }
+
+    @Override
+    public void close() {
+        if (dedicated)
+            pool.shutdown();
+    }
+
+    // PRIVATE
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        while (true) {
+            try {
+                latch.await();
+                return;
+            } catch (InterruptedException e) {
+                // the flag is restored by the caller
+            }
+        }
+    }
+
+    private static synchronized ForkJoinPool shared() {
+        if (shared == null)
+            shared = new ForkJoinPool(Constants.scanParallelism, threadFactory(SHARED_NAME), null, false);
+        return shared;
+    }
+
+    private static ForkJoinWorkerThreadFactory threadFactory(String name) {
+
+        AtomicInteger threadIds = new AtomicInteger();
+        return pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(name + "-" + threadIds.incrementAndGet());
+            return thread;
+        };
+    }
+}
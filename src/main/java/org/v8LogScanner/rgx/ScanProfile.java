@@ -4,7 +4,10 @@ import org.v8LogScanner.logs.LogsOperations;
 import org.v8LogScanner.rgx.RegExp.PropTypes;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface ScanProfile extends Serializable, Cloneable {
 
@@ -14,6 +17,8 @@ public interface ScanProfile extends Serializable, Cloneable {
 
     enum LogTypes {RPHOST, CLIENT, RAGENT, RMNGR, ANY}
 
+    enum ResultStorages {EVENTS, REFERENCES, OFF_HEAP}
+
     enum DateRanges {ANY, THIS_HOUR, LAST_HOUR, TODAY, YESTERDAY, THIS_WEEK, THIS_MONTH, PREV_WEEK, PREV_MONTH, SET_OWN}
 
     int getId();
@@ -72,6 +77,46 @@ public interface ScanProfile extends Serializable, Cloneable {
 
     void setRgxExp(String rgx);
 
+    int getTopKeys();
+
+    void setTopKeys(int topKeys);
+
+    int getMemoryBudget();
+
+    void setMemoryBudget(int memoryBudget);
+
+    ResultStorages getResultStorage();
+
+    void setResultStorage(ResultStorages resultStorage);
+
+    String getCacheDir();
+
+    void setCacheDir(String cacheDir);
+
+    String getColumnStoreDir();
+
+    void setColumnStoreDir(String columnStoreDir);
+
+    String getDeviceLimits();
+
+    void setDeviceLimits(String deviceLimits);
+
+    int getThrottleRate();
+
+    void setThrottleRate(int throttleRate);
+
+    int getThrottleThreads();
+
+    void setThrottleThreads(int throttleThreads);
+
+    int getParallelism();
+
+    void setParallelism(int parallelism);
+
+    int getScanTimeout();
+
+    void setScanTimeout(int scanTimeout);
+
     ScanProfile clone();
 
     void clear();
@@ -322,4 +367,41 @@ public interface ScanProfile extends Serializable, Cloneable {
         profile.setName(String.format("Last events happened at %s o'clock", LogsOperations.getDatePresentation(profile)));
     }
 
+    /**
+     * Daily auto profiles scanning the log paths and dates of the source profile with its scan options
+     * (memory, storage, cache, column store, device limits, throttling, parallelism and timeout).
+     * They are executed by the BatchScan in the single pass over log files.
+     */
+    static List<ScanProfile> buildDailyProfiles(ScanProfile source) {
+
+        List<Consumer<ScanProfile>> builders = Arrays.asList(
+                ScanProfile::buildTopSlowestSql,
+                ScanProfile::buildRphostExcp,
+                ScanProfile::build1cDeadlocksError,
+                ScanProfile::buildSqlDeadlLockError,
+                ScanProfile::buildUserEXCP);
+
+        List<ScanProfile> profiles = new ArrayList<>();
+        for (Consumer<ScanProfile> builder : builders) {
+            // the builder clears the profile, so the settings of the source are set after it
+            ScanProfile profile = source.clone();
+            builder.accept(profile);
+            profile.getLogPaths().addAll(source.getLogPaths());
+            profile.setDateRange(source.getDateRange());
+            profile.setStartDate(source.getStartDate());
+            profile.setEndDate(source.getEndDate());
+            profile.setMemoryBudget(source.getMemoryBudget());
+            profile.setResultStorage(source.getResultStorage());
+            profile.setCacheDir(source.getCacheDir());
+            profile.setColumnStoreDir(source.getColumnStoreDir());
+            profile.setDeviceLimits(source.getDeviceLimits());
+            profile.setThrottleRate(source.getThrottleRate());
+            profile.setThrottleThreads(source.getThrottleThreads());
+            profile.setParallelism(source.getParallelism());
+            profile.setScanTimeout(source.getScanTimeout());
+            profiles.add(profile);
+        }
+        return profiles;
+    }
+
 }
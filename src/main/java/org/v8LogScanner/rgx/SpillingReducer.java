@@ -0,0 +1,358 @@
+package org.v8LogScanner.rgx;
+
+import org.v8LogScanner.commonly.Constants;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * External grouping for the heap op results that do not fit into memory.
+ * Groups are collected in memory until the memory budget is reached, then they are
+ * written into a temp file as a run sorted by (group key, event time). At the end all of the runs
+ * are merged with a k-way merge into the single file which events of each key are placed
+ * sequentially. The result contains lists that read events from that file on demand.
+ * If the budget is never reached the result stays in memory.
+ * THE CLASS IS NOT THREAD-SAFE
+ */
+public class SpillingReducer implements AutoCloseable {
+
+    // approximate memory occupied by the single String object without its chars
+    private static final int STRING_OVERHEAD = 40;
+
+    private final long memoryBudget;
+    private long memoryUsed = 0;
+    private HashMap<String, List<String>> buffer = new HashMap<>();
+    private final List<Path> runs = new ArrayList<>();
+    private int runsCount = 0;
+    private Path mergedFile = null;
+
+    /**
+     * @param memoryBudget - amount of bytes allowed to keep in memory before spilling
+     */
+    public SpillingReducer(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    public void reduce(Map<String, List<String>> mapLogs) throws IOException {
+
+        for (Map.Entry<String, List<String>> row : mapLogs.entrySet()) {
+            List<String> events = buffer.get(row.getKey());
+            if (events == null) {
+                events = new ArrayList<>();
+                buffer.put(row.getKey(), events);
+                memoryUsed += sizeOf(row.getKey());
+            }
+            events.addAll(row.getValue());
+            for (String event : row.getValue())
+                memoryUsed += sizeOf(event);
+        }
+
+        if (memoryUsed >= memoryBudget)
+            spill();
+    }
+
+    public int getRunsCount() {
+        return runsCount;
+    }
+
+    /**
+     * Finishes the reduction. Returns the in-memory groups if nothing has been spilled
+     * otherwise merges all runs and returns groups backed by the merged file.
+     */
+    public ConcurrentMap<String, List<String>> getResult() throws IOException {
+
+        if (runs.isEmpty()) {
+            ConcurrentMap<String, List<String>> result = new ConcurrentHashMap<>(buffer);
+            buffer = new HashMap<>();
+            memoryUsed = 0;
+            return result;
+        }
+
+        spill();
+        return merge();
+    }
+
+    @Override
+    public void close() {
+        runs.forEach(this::deleteFile);
+        runs.clear();
+        if (mergedFile != null)
+            deleteFile(mergedFile);
+        mergedFile = null;
+        buffer.clear();
+        memoryUsed = 0;
+        runsCount = 0;
+    }
+
+    // PRIVATE
+
+    private void spill() throws IOException {
+
+        if (buffer.isEmpty())
+            return;
+
+        Path run = Files.createTempFile("v8LogScanner", ".run");
+        run.toFile().deleteOnExit();
+        runs.add(run);
+        runsCount++;
+
+        List<String> keys = new ArrayList<>(buffer.keySet());
+        Collections.sort(keys);
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(run.toFile()), 1024 * 64))) {
+            for (String key : keys) {
+                List<String> events = buffer.get(key);
+                RgxOpManager.sortByTime(events);
+                writeText(out, key);
+                out.writeInt(events.size());
+                for (String event : events)
+                    writeText(out, event);
+            }
+        }
+        buffer = new HashMap<>();
+        memoryUsed = 0;
+    }
+
+    private ConcurrentMap<String, List<String>> merge() throws IOException {
+
+        mergedFile = Files.createTempFile("v8LogScanner", ".merged");
+        mergedFile.toFile().deleteOnExit();
+
+        ConcurrentMap<String, List<String>> result = new ConcurrentHashMap<>();
+
+        PriorityQueue<RunCursor> queue = new PriorityQueue<>();
+        OffsetOutputStream offsets = new OffsetOutputStream(
+                new BufferedOutputStream(new FileOutputStream(mergedFile.toFile()), 1024 * 64));
+        try (DataOutputStream out = new DataOutputStream(offsets)) {
+
+            for (int i = 0; i < runs.size(); i++) {
+                RunCursor cursor = new RunCursor(runs.get(i), i);
+                if (cursor.next())
+                    queue.add(cursor);
+                else
+                    cursor.close();
+            }
+
+            String currKey = null;
+            long groupOffset = 0;
+            int groupSize = 0;
+
+            while (!queue.isEmpty()) {
+                RunCursor cursor = queue.poll();
+                if (!cursor.key.equals(currKey)) {
+                    if (currKey != null)
+                        result.put(currKey, new SpilledEvents(mergedFile, groupOffset, groupSize));
+                    currKey = cursor.key;
+                    // DataOutputStream.size() stops counting at Integer.MAX_VALUE
+                    groupOffset = offsets.getOffset();
+                    groupSize = 0;
+                }
+                writeText(out, cursor.event);
+                groupSize++;
+
+                if (cursor.next())
+                    queue.add(cursor);
+                else
+                    cursor.close();
+            }
+            if (currKey != null)
+                result.put(currKey, new SpilledEvents(mergedFile, groupOffset, groupSize));
+        } finally {
+            for (RunCursor cursor : queue)
+                cursor.close();
+        }
+
+        runs.forEach(this::deleteFile);
+        runs.clear();
+
+        return result;
+    }
+
+    private static long sizeOf(String text) {
+        return STRING_OVERHEAD + 2L * text.length();
+    }
+
+    private static void writeText(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(Constants.logsCharset);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readText(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, Constants.logsCharset);
+    }
+
+    private void deleteFile(Path path) {
+        path.toFile().delete();
+    }
+
+    /**
+     * Sequential reader over the single run file used by the k-way merge.
+     * Cursors are ordered by the group key, the event time and at last the run index
+     * so events of the same key and time keep the reading order.
+     */
+    private static class RunCursor implements Comparable<RunCursor>, Closeable {
+
+        private final DataInputStream in;
+        private final int runIndex;
+        private String key;
+        private String event;
+        private int remaining = 0;
+
+        RunCursor(Path run, int runIndex) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(run.toFile()), 1024 * 64));
+            this.runIndex = runIndex;
+        }
+
+        boolean next() throws IOException {
+            if (remaining == 0) {
+                if (in.available() == 0)
+                    return false;
+                key = readText(in);
+                remaining = in.readInt();
+                if (remaining == 0)
+                    return next();
+            }
+            event = readText(in);
+            remaining--;
+            return true;
+        }
+
+        @Override
+        public int compareTo(RunCursor o) {
+            int compared = key.compareTo(o.key);
+            if (compared == 0)
+                compared = RgxOpManager.compare(event, o.event);
+            if (compared == 0)
+                compared = Integer.compare(runIndex, o.runIndex);
+            return compared;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Stream counting the written bytes as long, so offsets of the groups stay valid past 2 GB of the merged file
+     */
+    public static class OffsetOutputStream extends FilterOutputStream {
+
+        private long offset = 0;
+
+        public OffsetOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            offset++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            offset += len;
+        }
+    }
+
+    /**
+     * Read-only list of events of the single key placed in the merged file.
+     * The events are read sequentially from the file each time the list is iterated.
+     * The indexed access reads the file by pages and keeps the last page, so the indexed loop
+     * reads each page once.
+     */
+    static class SpilledEvents extends AbstractList<String> {
+
+        private static final int PAGE_SIZE = 1024;
+
+        private final Path file;
+        private final long offset;
+        private final int size;
+        private List<String> page = Collections.emptyList();
+        private int pageStart = 0;
+        // index and file offset of the event following the last page
+        private int nextIndex = 0;
+        private long nextOffset;
+
+        SpilledEvents(Path file, long offset, int size) {
+            this.file = file;
+            this.offset = offset;
+            this.size = size;
+            nextOffset = offset;
+        }
+
+        @Override
+        public synchronized String get(int index) {
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            if (index < pageStart || index >= pageStart + page.size())
+                readPage(index / PAGE_SIZE * PAGE_SIZE);
+            return page.get(index - pageStart);
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return read(size).iterator();
+        }
+
+        private List<String> read(int count) {
+            List<String> events = new ArrayList<>(count);
+            try (FileInputStream fs = new FileInputStream(file.toFile())) {
+                fs.getChannel().position(offset);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(fs, 1024 * 64));
+                for (int i = 0; i < count; i++)
+                    events.add(readText(in));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return events;
+        }
+
+        // the page following the last one is read from its end, the earlier pages from the start of the group
+        private void readPage(int start) {
+
+            int index = start < nextIndex ? 0 : nextIndex;
+            long position = start < nextIndex ? offset : nextOffset;
+            int count = Math.min(PAGE_SIZE, size - start);
+            List<String> events = new ArrayList<>(count);
+
+            try (FileInputStream fs = new FileInputStream(file.toFile())) {
+                fs.getChannel().position(position);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(fs, 1024 * 64));
+                for (; index < start + count; index++) {
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    position += 4 + bytes.length;
+                    if (index >= start)
+                        events.add(new String(bytes, Constants.logsCharset));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            page = events;
+            pageStart = start;
+            nextIndex = index;
+            nextOffset = position;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.v8LogScanner.rgx;
+
+import org.v8LogScanner.commonly.Constants;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Reader returning only the candidate events of the column store. Texts of the candidates
+ * are read from the log file by their byte offsets so the log is not split into events again.
+ */
+class StoreReader extends RgxReader {
+
+    private final ColumnStore store;
+    // null if all events of the store are candidates
+    private final boolean[] candidates;
+    private int limit;
+    private final RandomAccessFile file;
+    private final ArrayList<String> result;
+    private long[] offsets;
+    private int[] lengths;
+    private int index = 0;
+
+    StoreReader(ColumnStore store, boolean[] candidates, int limit) throws IOException {
+
+        super(CharBuffer.allocate(0));
+
+        this.store = store;
+        this.candidates = candidates;
+        this.limit = limit;
+        this.file = new RandomAccessFile(store.getLogFile(), "r");
+        this.result = new ArrayList<>(limit);
+        this.offsets = new long[limit];
+        this.lengths = new int[limit];
+    }
+
+    @Override
+    public boolean next() throws IOException {
+
+        result.clear();
+        while (index < store.size() && result.size() < limit) {
+
+            int i = index++;
+            if (candidates != null && !candidates[i])
+                continue;
+
+            byte[] bytes = new byte[store.length(i)];
+            file.seek(store.offset(i));
+            file.readFully(bytes);
+            if (throttle != null)
+                throttle.acquire(bytes.length);
+
+            offsets[result.size()] = store.offset(i);
+            lengths[result.size()] = store.length(i);
+            result.add(new String(bytes, Constants.logsCharset).trim());
+        }
+        return !result.isEmpty();
+    }
+
+    @Override
+    boolean tracksOffsets() {
+        return true;
+    }
+
+    // the candidates are read by their offsets, so there is no buffer to grow
+    @Override
+    void tune(int limit, int bufferSize) {
+        this.limit = Math.max(limit, 1);
+        if (this.limit > offsets.length) {
+            offsets = Arrays.copyOf(offsets, this.limit);
+            lengths = Arrays.copyOf(lengths, this.limit);
+        }
+    }
+
+    @Override
+    RgxReader throttle(Throttle throttle) {
+        this.throttle = throttle;
+        return this;
+    }
+
+    @Override
+    public ArrayList<String> getResult() {
+        return result;
+    }
+
+    @Override
+    public long getOffset(int index) {
+        return offsets[index];
+    }
+
+    @Override
+    public int getLength(int index) {
+        return lengths[index];
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
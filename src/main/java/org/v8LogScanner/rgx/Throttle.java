@@ -0,0 +1,145 @@
+package org.v8LogScanner.rgx;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.function.IntSupplier;
+
+/**
+ * Token bucket restricting the amount of bytes of log files read per second, so the scan on the working
+ * server does not compete with its processes for the disk. The bucket holds the tokens of one second.
+ * The rate is halved while the system is loaded and is restored step by step when the load falls.
+ * The load average counts the processes waiting for I/O as well as the running ones, so it is used
+ * when the system provides it, otherwise the CPU load of the system is used. The scan is not backed off
+ * by its own load: the active threads of its pool are subtracted from the load average and the CPU load
+ * of the JVM from the CPU load of the system.
+ */
+class Throttle {
+
+    private static final long NANOS = 1_000_000_000L;
+    // load per processor above which the rate is lowered and below which it is restored
+    private static final double HIGH_LOAD = 0.8;
+    private static final double LOW_LOAD = 0.5;
+    private static final int MIN_RATE_DIVISOR = 16;
+    private static final int RESTORE_STEPS = 8;
+
+    private final long rate;
+    private long currentRate;
+    // tokens may be negative when the read was larger than the bucket, the debt is waited out
+    private long tokens;
+    private long refilled;
+    private long probed;
+    private int backOffs = 0;
+    private final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    private final IntSupplier scanThreads;
+
+    /**
+     * @param rate        - bytes per second
+     * @param scanThreads - active threads of the scan
+     */
+    Throttle(long rate, IntSupplier scanThreads) {
+        this.rate = Math.max(rate, 1);
+        this.scanThreads = scanThreads;
+        this.currentRate = this.rate;
+        this.tokens = this.rate;
+        this.refilled = System.nanoTime();
+        this.probed = refilled;
+    }
+
+    /**
+     * Takes the tokens of the read bytes waiting until the bucket has them
+     */
+    void acquire(long bytes) throws InterruptedIOException {
+
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (now - probed >= NANOS) {
+                adaptToLoad();
+                probed = now;
+            }
+            tokens = Math.min(currentRate, tokens + (now - refilled) * currentRate / NANOS);
+            refilled = now;
+            tokens -= bytes;
+            wait = tokens >= 0 ? 0 : -tokens * NANOS / currentRate;
+        }
+
+        if (wait == 0)
+            return;
+        try {
+            Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    /**
+     * Channel taking the tokens of each read from the channel
+     */
+    ReadableByteChannel wrap(ReadableByteChannel channel) {
+
+        return new ReadableByteChannel() {
+
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                int n = channel.read(dst);
+                if (n > 0)
+                    acquire(n);
+                return n;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return channel.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+
+    synchronized String describe() {
+        return String.format("throttled to %s kb/s, lowered by the system load %s times",
+                rate / 1024, backOffs);
+    }
+
+    // PRIVATE
+
+    private void adaptToLoad() {
+
+        double load = systemLoad();
+        if (load < 0)
+            return;
+
+        long minRate = Math.max(rate / MIN_RATE_DIVISOR, 1);
+        if (load > HIGH_LOAD && currentRate > minRate) {
+            currentRate = Math.max(currentRate / 2, minRate);
+            backOffs++;
+        } else if (load < LOW_LOAD)
+            currentRate = Math.min(currentRate + Math.max(rate / RESTORE_STEPS, 1), rate);
+    }
+
+    // Load per processor without the load of the scan or a negative value if the system does not provide it
+    private double systemLoad() {
+
+        double loadAverage = os.getSystemLoadAverage();
+        if (loadAverage >= 0)
+            return Math.max(loadAverage - scanThreads.getAsInt(), 0) / os.getAvailableProcessors();
+
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            com.sun.management.OperatingSystemMXBean sunOs = (com.sun.management.OperatingSystemMXBean) os;
+            double systemCpu = sunOs.getSystemCpuLoad();
+            double processCpu = sunOs.getProcessCpuLoad();
+            if (systemCpu >= 0)
+                return Math.max(systemCpu - Math.max(processCpu, 0), 0);
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,156 @@
+package org.v8LogScanner.rgx;
+
+import org.v8LogScanner.commonly.Constants;
+import org.v8LogScanner.commonly.ExcpReporting;
+import org.v8LogScanner.commonly.Filter.ComparisonTypes;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sparse time index of the single log file. For every minute of the hour the index keeps
+ * the byte offset of the first event of this minute and the byte offset after its last event,
+ * so the scan restricted by the time filter reads only the bytes of the requested minutes.
+ * The index is built during any full scan of the file and is kept while the file is not changed.
+ */
+public class TimeIndex {
+
+    // changes when the format of the index file changes
+    private static final String FORMAT_VERSION = "1";
+    private static final int MINUTES = 60;
+    // digits of seconds and microseconds in the time key mmssffffff
+    private static final long MINUTE_DIVISOR = 100_000_000L;
+
+    private final long[] starts = new long[MINUTES];
+    private final long[] ends = new long[MINUTES];
+
+    public TimeIndex() {
+        Arrays.fill(starts, -1);
+        Arrays.fill(ends, -1);
+    }
+
+    /**
+     * Adds the event with its byte position in the log file
+     */
+    public void add(String event, long offset, int length) {
+
+        int minute = (int) (RgxOpManager.getTimeKey(event) / MINUTE_DIVISOR);
+        if (minute < 0 || minute >= MINUTES)
+            return;
+
+        if (starts[minute] < 0 || offset < starts[minute])
+            starts[minute] = offset;
+        ends[minute] = Math.max(ends[minute], offset + length);
+    }
+
+    /**
+     * Byte range holding all events of the minutes from the first to the last one (inclusive)
+     *
+     * @return array of the start and the end offsets or null if there are no events in these minutes
+     */
+    public long[] range(int firstMinute, int lastMinute) {
+
+        long start = Long.MAX_VALUE;
+        long end = -1;
+        for (int minute = Math.max(firstMinute, 0); minute <= Math.min(lastMinute, MINUTES - 1); minute++) {
+            if (starts[minute] < 0)
+                continue;
+            start = Math.min(start, starts[minute]);
+            end = Math.max(end, ends[minute]);
+        }
+        return end < 0 ? null : new long[]{start, end};
+    }
+
+    /**
+     * Minutes of the hour which events can pass the time filter. Time filter values are compared as mmss numbers.
+     *
+     * @return array of the first and the last minutes (inclusive) or null if the filter does not restrict time
+     */
+    public static int[] minuteWindow(List<String> filterVals, ComparisonTypes compType) {
+
+        if (filterVals == null || filterVals.isEmpty() || filterVals.contains(""))
+            return null;
+
+        long from = 0;
+        long to = 5959;
+        try {
+            long val = Long.parseLong(filterVals.get(0));
+            if (compType == ComparisonTypes.range) {
+                long val2 = Long.parseLong(filterVals.get(1));
+                from = Math.min(val, val2);
+                to = Math.max(val, val2);
+            } else if (compType == ComparisonTypes.equal) {
+                from = val;
+                to = val;
+            } else if (compType == ComparisonTypes.greater)
+                from = val;
+            else if (compType == ComparisonTypes.less)
+                to = val;
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return null;
+        }
+        return new int[]{(int) (Math.max(from, 0) / 100), (int) (Math.min(to, 5959) / 100)};
+    }
+
+    /**
+     * Returns the index of the log file or null if it is not built yet or the file has been changed since
+     */
+    public static TimeIndex load(String logFile) {
+
+        Path indexFile = indexOf(logFile);
+        if (!Files.exists(indexFile))
+            return null;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(indexFile.toFile())))) {
+
+            if (!in.readUTF().equals(FORMAT_VERSION + "|" + ResultCache.fileStamp(logFile)))
+                return null;
+
+            TimeIndex index = new TimeIndex();
+            for (int minute = 0; minute < MINUTES; minute++) {
+                index.starts[minute] = in.readLong();
+                index.ends[minute] = in.readLong();
+            }
+            return index;
+        } catch (IOException e) {
+            ExcpReporting.LogError(TimeIndex.class, e);
+            return null;
+        }
+    }
+
+    /**
+     * @param fileStamp - stamp of the log file taken before the file was read
+     */
+    public void save(String logFile, String fileStamp) {
+
+        Path indexFile = indexOf(logFile);
+        try {
+            Files.createDirectories(indexFile.getParent());
+            Path tmp = Files.createTempFile(indexFile.getParent(), "tidx", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmp.toFile())))) {
+                out.writeUTF(FORMAT_VERSION + "|" + fileStamp);
+                for (int minute = 0; minute < MINUTES; minute++) {
+                    out.writeLong(starts[minute]);
+                    out.writeLong(ends[minute]);
+                }
+            }
+            Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            ExcpReporting.LogError(this.getClass(), e);
+        }
+    }
+
+    // PRIVATE
+
+    private static Path indexOf(String logFile) {
+        return Paths.get(Constants.indexDir, ResultCache.hash(
+                Paths.get(logFile).toAbsolutePath().normalize().toString()) + ".tidx");
+    }
+}
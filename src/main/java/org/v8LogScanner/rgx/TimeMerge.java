@@ -0,0 +1,81 @@
+package org.v8LogScanner.rgx;
+
+import java.util.Arrays;
+
+/**
+ * Orders events by their precomputed timestamps without comparing event texts.
+ * Events of the single log file go in time order so a group collected from several files
+ * consists of a few ascending runs. The runs are found in one pass and joined with a k-way
+ * merge over a binary heap of runs, which costs O(n log k) where k is the amount of runs.
+ * Events with equal timestamps keep the order in which they were added.
+ */
+final class TimeMerge {
+
+    private TimeMerge() {
+    }
+
+    /**
+     * Returns indexes of the first "size" timestamps in the ascending time order
+     * or null if the timestamps are already ordered
+     */
+    static int[] order(long[] times, int size) {
+
+        int runs = 1;
+        for (int i = 1; i < size; i++) {
+            if (times[i] < times[i - 1])
+                runs++;
+        }
+        if (runs == 1)
+            return null;
+
+        int[] starts = new int[runs + 1];
+        int run = 1;
+        for (int i = 1; i < size; i++) {
+            if (times[i] < times[i - 1])
+                starts[run++] = i;
+        }
+        starts[runs] = size;
+
+        int[] cursors = Arrays.copyOf(starts, runs);
+        int[] heap = new int[runs];
+        for (int i = 0; i < runs; i++)
+            heap[i] = i;
+        int heapSize = runs;
+        for (int i = heapSize / 2 - 1; i >= 0; i--)
+            siftDown(heap, heapSize, i, times, cursors);
+
+        int[] order = new int[size];
+        for (int k = 0; k < size; k++) {
+            run = heap[0];
+            order[k] = cursors[run]++;
+            if (cursors[run] == starts[run + 1])
+                heap[0] = heap[--heapSize];
+            siftDown(heap, heapSize, 0, times, cursors);
+        }
+        return order;
+    }
+
+    private static void siftDown(int[] heap, int heapSize, int pos, long[] times, int[] cursors) {
+
+        int run = heap[pos];
+        while (true) {
+            int child = 2 * pos + 1;
+            if (child >= heapSize)
+                break;
+            if (child + 1 < heapSize && less(heap[child + 1], heap[child], times, cursors))
+                child++;
+            if (!less(heap[child], run, times, cursors))
+                break;
+            heap[pos] = heap[child];
+            pos = child;
+        }
+        heap[pos] = run;
+    }
+
+    // earlier runs win on equal timestamps so the merge is stable
+    private static boolean less(int run1, int run2, long[] times, int[] cursors) {
+        long time1 = times[cursors[run1]];
+        long time2 = times[cursors[run2]];
+        return time1 < time2 || (time1 == time2 && run1 < run2);
+    }
+}
@@ -0,0 +1,44 @@
+package org.v8LogScanner.rgx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Group of event texts with the absolute timestamp of each event computed once when the event is added.
+ * Events must be added with the add(String, long) method, then the group is ordered by the timestamps
+ * with the merge of runs from different log files. Timestamps are not serialized with the events.
+ */
+public class TimedEvents extends ArrayList<String> {
+
+    private static final long serialVersionUID = 3560270870938917563L;
+
+    private transient long[] times = new long[4];
+
+    public void add(String event, long time) {
+        if (size() == times.length)
+            times = Arrays.copyOf(times, times.length * 2);
+        times[size()] = time;
+        add(event);
+    }
+
+    public void sortByTime() {
+
+        int[] order = TimeMerge.order(times, size());
+        if (order == null)
+            return;
+
+        Object[] events = toArray();
+        long[] sortedTimes = new long[times.length];
+        for (int i = 0; i < order.length; i++) {
+            set(i, (String) events[order[i]]);
+            sortedTimes[i] = times[order[i]];
+        }
+        times = sortedTimes;
+    }
+
+    @Override
+    public void trimToSize() {
+        super.trimToSize();
+        times = Arrays.copyOf(times, Math.max(size(), 1));
+    }
+}
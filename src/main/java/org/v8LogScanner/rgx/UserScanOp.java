@@ -1,35 +1,42 @@
 package org.v8LogScanner.rgx;
 
-import org.v8LogScanner.commonly.Constants;
-import org.v8LogScanner.commonly.ExcpReporting;
 import org.v8LogScanner.rgx.IRgxSelector.SelectDirections;
+import org.v8LogScanner.rgx.ScanProfile.ResultStorages;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 public class UserScanOp extends AbstractOp {
 
     private HeapSelector selector = new HeapSelector();
     private Pattern pattern = null;
     private int totalEvents = 0;
+    private EventArena arena = null;
+    // scanning state
+    private List<String> logFiles;
+    private boolean keepRefs;
+    private EventRefs refs;
+    private TimedEvents mapLogs;
+    private long fileHour;
 
     //profile variables
     private String rgxExp;
+    private ResultStorages resultStorage;
 
     UserScanOp(ScanProfile profile) {
         this.rgxExp = profile.getRgxExp();
+        this.resultStorage = profile.getResultStorage();
     }
 
     // INTERFACE
 
-    public void execute(List<String> logFiles) {
+    // SCANNING PHASES
 
-        calc.start();
+    void beginScan(List<String> logFiles) {
 
         saveProcessingInfo("\n*START OWN RGX LOG SCANNING...");
 
@@ -37,50 +44,120 @@ public class UserScanOp extends AbstractOp {
 
         pattern = Pattern.compile(rgxExp, Pattern.DOTALL);
 
-        ConcurrentMap<String, List<String>> rgxResult = new ConcurrentHashMap<>();
+        this.logFiles = logFiles;
+        // groups of the files are put into the index of the selector as the files end
+        selector.setResult(new ConcurrentHashMap<>());
+        keepRefs = resultStorage == ResultStorages.REFERENCES;
+        // copies event texts outside of the java heap
+        arena = resultStorage == ResultStorages.OFF_HEAP ? new EventArena() : null;
+    }
+
+    void beginFile(int fileId) {
+        // keeps references to events in the log file instead of event texts
+        refs = keepRefs ? new EventRefs(logFiles) : null;
+        if (arena != null)
+            refs = new EventRefs(arena);
+        mapLogs = new TimedEvents();
+        fileHour = RgxOpManager.getFileHour(logFiles.get(fileId));
+    }
 
-        for (String logFile : logFiles) {
-            ArrayList<String> mapLogs = new ArrayList<>();
-            try (RgxReader reader = new RgxReader(logFile, Constants.logsCharset, Constants.logEventsCount)) {
+    void scanBatch(RgxReader reader, int fileId) {
 
-                ArrayList<String> readResult;
+        inSize += reader.getResult().size();
 
-                while (reader.next()) {
-                    readResult = reader.getResult();
+        int out = filterLogs(reader, fileId, fileHour, refs, mapLogs);
+        outSize += out;
+        totalEvents += out;
+    }
 
-                    inSize += readResult.size();
-                    mapLogs.addAll(filterLogs(readResult));
-                    outSize += mapLogs.size();
-                    totalEvents += mapLogs.size();
-                }
+    void endFile(int fileId) {
 
-                if (mapLogs.size() > 0) {
-                    rgxResult.put(logFile, mapLogs);
-                }
-            } catch (IOException e) {
-                ExcpReporting.LogError(this.getClass(), e);
-            }
-            saveProcessingInfo(String.format("in: %s, out: %s, %s", inSize, outSize, logFile));
-            inSize = 0;
-            outSize = 0;
+        String logFile = logFiles.get(fileId);
+
+        if (refs != null && refs.size() > 0) {
+            refs.sortByTime();
+            refs.trimToSize();
+            selector.put(logFile, refs);
+        } else if (mapLogs.size() > 0) {
+            mapLogs.sortByTime();
+            mapLogs.trimToSize();
+            selector.put(logFile, mapLogs);
+            if (filePartial != null)
+                filePartial.put(logFile, mapLogs);
         }
-        selector.setResult(rgxResult);
-        calc.end();
+        refs = null;
+        mapLogs = null;
+
+        saveProcessingInfo(String.format("in: %s, out: %s, %s", inSize, outSize, logFile));
+        inSize = 0;
+        outSize = 0;
+    }
+
+    void endScan() {
+        refs = null;
+        mapLogs = null;
     }
 
-    private List<String> filterLogs(ArrayList<String> mapList) {
+    void cancelScan() {
+        refs = null;
+        mapLogs = null;
+        arena = null;
+        selector.clearResult();
+    }
 
-        return mapList.
-                parallelStream().
-                unordered().
-                filter(n -> pattern.matcher(n).matches()).
-                sequential().
-                sorted(RgxOpManager::compare).
-                collect(Collectors.toList());
+    @Override
+    boolean tracksOffsets() {
+        return keepRefs;
+    }
+
+    @Override
+    boolean cacheable() {
+        return !keepRefs && arena == null;
+    }
+
+    @Override
+    void restoreFile(int fileId, Map<String, List<String>> partial) {
+
+        String logFile = logFiles.get(fileId);
+
+        ArrayList<String> events = new ArrayList<>();
+        partial.values().forEach(events::addAll);
+        if (events.size() > 0)
+            selector.put(logFile, events);
+        totalEvents += events.size();
+
+        saveProcessingInfo(String.format("cached out: %s, %s", events.size(), logFile));
+    }
+
+    // Returns amount of matched events. They are added either to references or to texts
+    private int filterLogs(RgxReader reader, int fileId, long fileHour, EventRefs refs, TimedEvents mapLogs) {
+
+        ArrayList<String> readResult = reader.getResult();
+        boolean[] matched = new boolean[readResult.size()];
+
+        batchRange(matched.length).
+                forEach(j -> matched[j] = pattern.matcher(readResult.get(j)).matches());
+
+        int out = 0;
+        for (int j = 0; j < matched.length; j++) {
+            if (!matched[j])
+                continue;
+            String event = readResult.get(j);
+            long time = RgxOpManager.getTimestamp(event, fileHour);
+            if (refs == null)
+                mapLogs.add(event, time);
+            else if (arena != null)
+                refs.add(event, time);
+            else
+                refs.add(fileId, reader.getOffset(j), reader.getLength(j), time);
+            out++;
+        }
+        return out;
     }
 
     private void resetResult() {
         selector.clearResult();
+        arena = null;
         processingInfo.clear();
         inSize = 0;
         outSize = 0;
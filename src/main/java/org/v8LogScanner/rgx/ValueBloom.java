@@ -0,0 +1,280 @@
+package org.v8LogScanner.rgx;
+
+import org.v8LogScanner.commonly.Constants;
+import org.v8LogScanner.commonly.ExcpReporting;
+import org.v8LogScanner.commonly.Filter;
+import org.v8LogScanner.rgx.RegExp.PropTypes;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+import java.util.regex.Pattern;
+
+/**
+ * Bloom filter of the values of Usr, connectID, SessionID and processName props of the single log file.
+ * Prop patterns find the filter value as the prefix of the prop value anywhere in the event,
+ * so every prefix of every occurrence up to MAX_PREFIX chars is added. Prefixes are hashed incrementally
+ * over the chars of the event without copying them. The longer filter value is looked up by its first
+ * MAX_PREFIX chars, which is enough for user names, ids and process names. The file which filter
+ * does not contain the value of any RegExp can be skipped without reading it.
+ * The filter is built during any full scan of the file and is kept while the file is not changed.
+ */
+public class ValueBloom {
+
+    // changes when the format of the filter file changes
+    private static final String FORMAT_VERSION = "2";
+    private static final PropTypes[] PROPS = {PropTypes.Usr, PropTypes.ConnectID, PropTypes.SessionID,
+            PropTypes.ProcessName};
+    private static final String[] NAMES = {"Usr=", "t:connectID=", "SessionID=", "p:processName="};
+    private static final int HASHES = 7;
+    // about 1% of false positives with 7 hashes
+    private static final int BITS_PER_VALUE = 10;
+    // longest prefix of the prop value added to the filter
+    static final int MAX_PREFIX = 64;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    // Filter values without regex syntax which are compared literally
+    private static final Pattern PLAIN_VALUE = Pattern.compile("[^,\\\\\\[\\](){}.*+?^$|]+");
+
+    private final long[] bits;
+    // hashes of the values collected during the scan, the bits are filled when the filter is saved
+    private LongSet values = new LongSet();
+
+    public ValueBloom() {
+        this.bits = null;
+    }
+
+    private ValueBloom(long[] bits) {
+        this.bits = bits;
+        this.values = null;
+    }
+
+    /**
+     * Adds values of the props found in the event
+     */
+    public void add(String event) {
+
+        for (int prop = 0; prop < NAMES.length; prop++) {
+            String name = NAMES[prop];
+            int start = event.indexOf(name);
+            while (start >= 0) {
+                start += name.length();
+                int end = event.indexOf(',', start);
+                if (end < 0)
+                    end = event.length();
+                long hash = propHash(prop);
+                for (int i = start; i < Math.min(end, start + MAX_PREFIX); i++) {
+                    hash = (hash ^ event.charAt(i)) * FNV_PRIME;
+                    values.add(hash);
+                }
+                start = event.indexOf(name, start);
+            }
+        }
+    }
+
+    /**
+     * Whether events of the file can match any of the RegExps. Returns true when the filter
+     * of the file is not built or is out of date.
+     */
+    public static boolean mayMatch(String logFile, List<RegExp> rgxList) {
+
+        if (rgxList.isEmpty())
+            return true;
+
+        ValueBloom bloom = null;
+        for (RegExp rgx : rgxList) {
+
+            boolean mayMatch = true;
+            for (Map.Entry<PropTypes, Filter> filter : rgx.getFilters().entrySet()) {
+
+                int prop = propIndex(filter.getKey());
+                List<String> filterVals = filter.getValue().getElements();
+                if (prop < 0 || filterVals.isEmpty()
+                        || !filterVals.stream().allMatch(val -> PLAIN_VALUE.matcher(val).matches()))
+                    continue;
+
+                if (bloom == null) {
+                    bloom = load(logFile);
+                    if (bloom == null)
+                        return true;
+                }
+                ValueBloom fileBloom = bloom;
+                if (filterVals.stream().noneMatch(val -> fileBloom.mightContain(hash(prop, val)))) {
+                    mayMatch = false;
+                    break;
+                }
+            }
+            if (mayMatch)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the filter of the log file or null if it is not built yet or the file has been changed since
+     */
+    public static ValueBloom load(String logFile) {
+
+        Path bloomFile = bloomOf(logFile);
+        if (!Files.exists(bloomFile))
+            return null;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(bloomFile.toFile())))) {
+
+            if (!in.readUTF().equals(FORMAT_VERSION + "|" + ResultCache.fileStamp(logFile)))
+                return null;
+
+            long[] bits = new long[in.readInt()];
+            for (int i = 0; i < bits.length; i++)
+                bits[i] = in.readLong();
+            return new ValueBloom(bits);
+        } catch (IOException e) {
+            ExcpReporting.LogError(ValueBloom.class, e);
+            return null;
+        }
+    }
+
+    /**
+     * @param fileStamp - stamp of the log file taken before the file was read
+     */
+    public void save(String logFile, String fileStamp) {
+
+        int bitCount = Math.max(values.size() * BITS_PER_VALUE, 64);
+        long[] filled = new long[(bitCount + 63) / 64];
+        values.forEach(value -> {
+            for (long index : indexes(value, filled.length * 64L))
+                filled[(int) (index >>> 6)] |= 1L << index;
+        });
+
+        Path bloomFile = bloomOf(logFile);
+        try {
+            Files.createDirectories(bloomFile.getParent());
+            Path tmp = Files.createTempFile(bloomFile.getParent(), "bloom", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmp.toFile())))) {
+                out.writeUTF(FORMAT_VERSION + "|" + fileStamp);
+                out.writeInt(filled.length);
+                for (long word : filled)
+                    out.writeLong(word);
+            }
+            Files.move(tmp, bloomFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            ExcpReporting.LogError(this.getClass(), e);
+        }
+    }
+
+    // PRIVATE
+
+    private boolean mightContain(long value) {
+        for (long index : indexes(value, bits.length * 64L)) {
+            if ((bits[(int) (index >>> 6)] & (1L << index)) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    // Double hashing of the two halves of the 64 bit FNV-1a hash of the value
+    private static long[] indexes(long hash, long bitCount) {
+
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+
+        long[] indexes = new long[HASHES];
+        for (int i = 0; i < HASHES; i++) {
+            int combined = hash1 + (i + 1) * hash2;
+            indexes[i] = (combined & Integer.MAX_VALUE) % bitCount;
+        }
+        return indexes;
+    }
+
+    private static int propIndex(PropTypes prop) {
+        for (int i = 0; i < PROPS.length; i++) {
+            if (PROPS[i] == prop)
+                return i;
+        }
+        return -1;
+    }
+
+    // FNV-1a hash over the chars of the prop index and the prefix of the value
+    private static long hash(int prop, String value) {
+        long hash = propHash(prop);
+        for (int i = 0; i < Math.min(value.length(), MAX_PREFIX); i++)
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        return hash;
+    }
+
+    private static long propHash(int prop) {
+        return (FNV_OFFSET ^ prop) * FNV_PRIME;
+    }
+
+    private static Path bloomOf(String logFile) {
+        return Paths.get(Constants.indexDir, ResultCache.hash(
+                Paths.get(logFile).toAbsolutePath().normalize().toString()) + ".bloom");
+    }
+
+    /**
+     * Open addressing set of the hashes, so adding the prefixes boxes nothing
+     */
+    private static class LongSet {
+
+        // 0 marks the empty slot, the zero hash is kept by its own flag
+        private long[] slots = new long[64];
+        private boolean hasZero = false;
+        private int size = 0;
+
+        void add(long value) {
+
+            if (value == 0) {
+                if (!hasZero) {
+                    hasZero = true;
+                    size++;
+                }
+                return;
+            }
+            if ((size + 1) * 2 > slots.length)
+                grow();
+            if (insert(slots, value))
+                size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void forEach(LongConsumer action) {
+            if (hasZero)
+                action.accept(0);
+            for (long value : slots) {
+                if (value != 0)
+                    action.accept(value);
+            }
+        }
+
+        private void grow() {
+            long[] grown = new long[slots.length * 2];
+            for (long value : slots) {
+                if (value != 0)
+                    insert(grown, value);
+            }
+            slots = grown;
+        }
+
+        private static boolean insert(long[] slots, long value) {
+            int mask = slots.length - 1;
+            int i = (int) ((value * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+            while (slots[i] != 0) {
+                if (slots[i] == value)
+                    return false;
+                i = (i + 1) & mask;
+            }
+            slots[i] = value;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package org.v8LogScanner.testV8LogScanner;
+
+import org.junit.Test;
+import org.v8LogScanner.rgx.KeyDictionary;
+import org.v8LogScanner.rgx.RgxOpManager;
+import org.v8LogScanner.rgx.SpillingReducer;
+import org.v8LogScanner.rgx.TimedEvents;
+
+import java.io.DataOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class TestReducers {
+
+    @Test
+    public void testSpillingReducer() throws Exception {
+
+        try (SpillingReducer reducer = new SpillingReducer(1)) {
+
+            ConcurrentMap<String, List<String>> batch = new ConcurrentHashMap<>();
+            batch.put("EXCP", Arrays.asList("52:17.725002-0,EXCP,2", "52:13.872002-0,EXCP,0"));
+            batch.put("TLOCK", Arrays.asList("05:15.349002-15980,TLOCK,6"));
+            reducer.reduce(batch);
+
+            batch = new ConcurrentHashMap<>();
+            batch.put("EXCP", Arrays.asList("52:13.887000-0,EXCP,0"));
+            reducer.reduce(batch);
+
+            ConcurrentMap<String, List<String>> result = reducer.getResult();
+
+            assertEquals(2, reducer.getRunsCount());
+            assertEquals(2, result.size());
+            assertEquals(3, result.get("EXCP").size());
+            assertEquals(Arrays.asList("52:13.872002-0,EXCP,0", "52:13.887000-0,EXCP,0", "52:17.725002-0,EXCP,2"),
+                    Arrays.asList(result.get("EXCP").toArray()));
+            assertEquals("05:15.349002-15980,TLOCK,6", result.get("TLOCK").get(0));
+        }
+    }
+
+    @Test
+    public void testSpilledEventsByIndex() throws Exception {
+
+        try (SpillingReducer reducer = new SpillingReducer(1)) {
+
+            List<String> events = new ArrayList<>();
+            for (int i = 0; i < 3000; i++)
+                events.add(String.format("%02d:%02d.%06d-0,EXCP,%d", i / 60 % 60, i % 60, i, i));
+            ConcurrentMap<String, List<String>> batch = new ConcurrentHashMap<>();
+            batch.put("EXCP", events.subList(0, 1500));
+            reducer.reduce(batch);
+            batch = new ConcurrentHashMap<>();
+            batch.put("EXCP", events.subList(1500, 3000));
+            batch.put("TLOCK", Arrays.asList("05:15.349002-15980,TLOCK,6"));
+            reducer.reduce(batch);
+
+            ConcurrentMap<String, List<String>> result = reducer.getResult();
+            List<String> spilled = result.get("EXCP");
+            for (int i = 0; i < events.size(); i++)
+                assertEquals(events.get(i), spilled.get(i));
+            // pages are read again after the later ones
+            assertEquals(events.get(5), spilled.get(5));
+            assertEquals(events.get(2999), spilled.get(2999));
+            assertEquals("05:15.349002-15980,TLOCK,6", result.get("TLOCK").get(0));
+        }
+    }
+
+    @Test
+    public void testOffsetsPastIntRange() throws Exception {
+
+        SpillingReducer.OffsetOutputStream offsets = new SpillingReducer.OffsetOutputStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        });
+        DataOutputStream out = new DataOutputStream(offsets);
+
+        byte[] chunk = new byte[64 * 1024 * 1024];
+        long written = 0;
+        while (written <= Integer.MAX_VALUE) {
+            out.write(chunk);
+            written += chunk.length;
+        }
+        out.writeInt(1);
+
+        assertEquals(written + 4, offsets.getOffset());
+        assertEquals(Integer.MAX_VALUE, out.size());
+    }
+
+    @Test
+    public void testKeyDictionary() {
+
+        KeyDictionary dictionary = new KeyDictionary();
+
+        int id = dictionary.idOf("Descr='src\\VResourceSessionImpl.cpp(507)");
+        assertEquals(id, dictionary.idOf(new String("Descr='src\\VResourceSessionImpl.cpp(507)")));
+        assertNotEquals(id, dictionary.idOf("Descr='src\\VResourceSessionImpl.cpp(508)"));
+        assertEquals(2, dictionary.size());
+        assertEquals("Descr='src\\VResourceSessionImpl.cpp(507)", dictionary.keyOf(id));
+    }
+
+    @Test
+    public void testTimedEventsMerge() {
+
+        long hour1 = RgxOpManager.getFileHour("/logs/rphost_1234/17061512.log");
+        long hour2 = RgxOpManager.getFileHour("/logs/rphost_1234/17061513.log");
+        assertEquals(17061512, hour1);
+        assertEquals(0, RgxOpManager.getFileHour("/logs/rphost_1234/log.txt"));
+
+        TimedEvents events = new TimedEvents();
+        // runs of two files added in the reverse order of their hours
+        for (String event : Arrays.asList("05:15.349002-0,EXCP,1", "52:13.872002-0,EXCP,1"))
+            events.add(event, RgxOpManager.getTimestamp(event, hour2));
+        for (String event : Arrays.asList("05:15.349002-0,EXCP,0", "52:13.872002-0,EXCP,0", "52:17.725002-0,EXCP,0"))
+            events.add(event, RgxOpManager.getTimestamp(event, hour1));
+        events.add("52:13.872002-0,EXCP,2", RgxOpManager.getTimestamp("52:13.872002-0,EXCP,2", hour2));
+
+        events.sortByTime();
+
+        assertEquals(Arrays.asList(
+                "05:15.349002-0,EXCP,0", "52:13.872002-0,EXCP,0", "52:17.725002-0,EXCP,0",
+                "05:15.349002-0,EXCP,1", "52:13.872002-0,EXCP,1", "52:13.872002-0,EXCP,2"), events);
+    }
+}
@@ -7,19 +7,44 @@ import org.v8LogScanner.LocalTCPLogScanner.V8LanLogScannerClient;
 import org.v8LogScanner.LocalTCPLogScanner.V8LogScannerClient;
 import org.v8LogScanner.commonly.Filter;
 import org.v8LogScanner.commonly.Filter.ComparisonTypes;
+import org.v8LogScanner.logs.LogCatalog;
+import org.v8LogScanner.logs.LogsDirVisitor;
+import org.v8LogScanner.logs.LogsOperations;
+import org.v8LogScanner.LocalTCPLogScanner.LanScanProfile;
+import org.v8LogScanner.rgx.BatchScan;
+import org.v8LogScanner.rgx.ColumnStore;
+import org.v8LogScanner.rgx.EventRefs;
+import org.v8LogScanner.rgx.HeavyHitters;
+import org.v8LogScanner.rgx.IRgxOp;
 import org.v8LogScanner.rgx.IRgxSelector.SelectDirections;
 import org.v8LogScanner.rgx.RegExp;
 import org.v8LogScanner.rgx.RegExp.EventTypes;
 import org.v8LogScanner.rgx.RegExp.PropTypes;
 import org.v8LogScanner.rgx.RgxOpManager;
+import org.v8LogScanner.rgx.RgxReader;
+import org.v8LogScanner.rgx.ScanCancellation;
 import org.v8LogScanner.rgx.ScanProfile;
 import org.v8LogScanner.rgx.SelectorEntry;
+import org.v8LogScanner.rgx.TimeIndex;
 import org.v8LogScanner.testV8LogScanner.V8LogFileConstructor.LogFileTypes;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.regex.Pattern;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class TestRgxOp {
@@ -91,6 +116,308 @@ public class TestRgxOp {
 
     }
 
+    @Test
+    public void testTimeIndex() {
+
+        String logFileName = constructor
+                .addUserEXCP()
+                .addEXCP()
+                .addTTimeout()
+                .build(LogFileTypes.FILE);
+
+        V8LogScannerClient client = new V8LanLogScannerClient();
+        ScanProfile profile = client.getProfile();
+        profile.addLogPath(logFileName);
+
+        RegExp excp = new RegExp(EventTypes.EXCP);
+        Filter timeFilter = excp.getFilter(PropTypes.Time);
+        timeFilter.setComparisonType(ComparisonTypes.greater);
+        timeFilter.add("50:00");
+        profile.addRegExp(excp);
+
+        // the first scan reads the whole file and builds the index, the second one reads only the minutes 50-59
+        assertNull(TimeIndex.load(logFileName));
+        client.startRgxOp();
+        List<SelectorEntry> scanned = client.select(100, SelectDirections.FORWARD);
+
+        TimeIndex index = TimeIndex.load(logFileName);
+        assertNotNull(index);
+        assertNull(index.range(0, 30));
+        long[] range = index.range(50, 59);
+        assertTrue(range[0] > 0);
+        assertTrue(range[1] < new File(logFileName).length());
+
+        client.startRgxOp();
+        List<SelectorEntry> seeked = client.select(100, SelectDirections.FORWARD);
+
+        assertEquals(3, scanned.stream().mapToInt(SelectorEntry::size).sum());
+        assertEquals(3, seeked.stream().mapToInt(SelectorEntry::size).sum());
+
+        V8LogFileConstructor.deleteLogFile(logFileName);
+    }
+
+    @Test
+    public void testSeekByTime() throws Exception {
+
+        // the hour file of the tech log with 20 events per minute written in time order
+        StringBuilder text = new StringBuilder("\uFEFF");
+        for (int minute = 0; minute < 60; minute++) {
+            for (int i = 0; i < 20; i++)
+                text.append(String.format("%02d:%02d.%06d-%d,EXCP,0,process=rphost,Descr='line %d\n%s'\n",
+                        minute, i * 3, i, i, i, String.join("", Collections.nCopies(20, "text "))));
+        }
+        Path logDir = Files.createTempDirectory("v8LogScannerSeek");
+        String logFileName = Files.write(logDir.resolve("26101912.log"),
+                text.toString().getBytes(StandardCharsets.UTF_8)).toString();
+
+        List<String> events = new ArrayList<>();
+        try (RgxReader reader = new RgxReader(logFileName, StandardCharsets.UTF_8, 100)) {
+            reader.seek(1000000000L, 1200000000L);
+            while (reader.next())
+                events.addAll(reader.getResult());
+        }
+        assertEquals(40, events.size());
+        assertTrue(events.get(0).startsWith("10:00.000000"));
+        assertTrue(events.get(39).startsWith("11:57.000019"));
+
+        V8LogScannerClient client = new V8LanLogScannerClient();
+        ScanProfile profile = client.getProfile();
+        profile.setRgxOp(ScanProfile.RgxOpTypes.HEAP_OP);
+        profile.addLogPath(logFileName);
+
+        RegExp excp = new RegExp(EventTypes.EXCP);
+        Filter timeFilter = excp.getFilter(PropTypes.Time);
+        timeFilter.setComparisonType(ComparisonTypes.greater);
+        timeFilter.add("55:00");
+        profile.addRegExp(excp);
+
+        client.startRgxOp();
+        List<SelectorEntry> logs = client.select(100, SelectDirections.FORWARD);
+        assertEquals(100, logs.stream().mapToInt(SelectorEntry::size).sum());
+
+        Files.walk(logDir).sorted(Comparator.reverseOrder()).forEach(n -> n.toFile().delete());
+    }
+
+    @Test
+    public void testReadAheadByDevice() throws Exception {
+
+        Path logDir = Files.createTempDirectory("v8LogScannerDevices");
+        for (int hour = 10; hour < 13; hour++) {
+            StringBuilder text = new StringBuilder("\uFEFF");
+            for (int i = 0; i < 500; i++)
+                text.append(String.format("%02d:%02d.%06d-%d,EXCP,0,process=rphost,Usr=user%d,Descr='line %d'\n",
+                        i / 10, i % 60, i, i, i % 7, i));
+            Files.write(logDir.resolve("261019" + hour + ".log"), text.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        List<List<String>> results = new ArrayList<>();
+        for (String deviceLimits : new String[]{"", "*=2:4"}) {
+            V8LogScannerClient client = new V8LanLogScannerClient();
+            ScanProfile profile = client.getProfile();
+            profile.setRgxOp(ScanProfile.RgxOpTypes.HEAP_OP);
+            profile.setDeviceLimits(deviceLimits);
+            profile.addLogPath(logDir.toString());
+            RegExp excp = new RegExp(EventTypes.EXCP);
+            excp.getGroupingProps().add(PropTypes.Usr);
+            profile.addRegExp(excp);
+
+            client.startRgxOp();
+            List<String> result = new ArrayList<>();
+            client.select(100, SelectDirections.FORWARD).forEach(n -> result.add(n.getKey() + "=" + n.size()));
+            results.add(result);
+        }
+        assertEquals(7, results.get(0).size());
+        assertEquals(1500, results.get(0).stream().mapToInt(n -> Integer.parseInt(n.replaceAll(".*=", ""))).sum());
+        assertEquals(results.get(0), results.get(1));
+
+        Files.walk(logDir).sorted(Comparator.reverseOrder()).forEach(n -> n.toFile().delete());
+    }
+
+    @Test
+    public void testThrottledScan() throws Exception {
+
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 500; i++)
+            text.append(String.format("%02d:%02d.%06d-%d,EXCP,0,process=rphost,Usr=user%d,Descr='line %d'\n",
+                    i / 10, i % 60, i, i, i % 7, i));
+        Path logFile = Files.createTempFile("v8LogScannerThrottle", ".log");
+        Files.write(logFile, text.toString().getBytes(StandardCharsets.UTF_8));
+
+        V8LogScannerClient client = new V8LanLogScannerClient();
+        ScanProfile profile = client.getProfile();
+        profile.setRgxOp(ScanProfile.RgxOpTypes.HEAP_OP);
+        profile.setThrottleRate(16);
+        profile.setThrottleThreads(1);
+        profile.addLogPath(logFile.toString());
+        RegExp excp = new RegExp(EventTypes.EXCP);
+        excp.getGroupingProps().add(PropTypes.Usr);
+        profile.addRegExp(excp);
+
+        // about 40 kb are read at 16 kb/s after the first second of the bucket
+        long started = System.currentTimeMillis();
+        client.startRgxOp();
+        assertTrue(System.currentTimeMillis() - started >= 1000);
+        assertEquals(7, client.select(100, SelectDirections.FORWARD).size());
+
+        Files.delete(logFile);
+    }
+
+    @Test
+    public void testScanPool() {
+
+        String logFileName = constructor.addEXCP().addHASP().build(LogFileTypes.FILE);
+
+        V8LogScannerClient client = new V8LanLogScannerClient();
+        List<String> info = new ArrayList<>();
+        client.addListener(info::addAll);
+        ScanProfile profile = client.getProfile();
+        profile.addLogPath(logFileName);
+        profile.addRegExp(new RegExp(EventTypes.EXCP));
+
+        client.startRgxOp();
+        assertTrue(info.stream().anyMatch(n -> n.startsWith("pool v8LogScanner-scan: parallelism")));
+
+        info.clear();
+        profile.setParallelism(2);
+        client.startRgxOp();
+        assertTrue(info.stream().anyMatch(n -> n.matches("pool v8LogScanner-scan-\\d+: parallelism 2, .*")));
+
+        // the throttled mode restricts threads of the pool
+        info.clear();
+        profile.setThrottleThreads(1);
+        client.startRgxOp();
+        assertTrue(info.stream().anyMatch(n -> n.matches("pool v8LogScanner-scan-\\d+: parallelism 1, .*")));
+        assertEquals(3, client.select(100, SelectDirections.FORWARD).stream().mapToInt(SelectorEntry::size).sum());
+
+        V8LogFileConstructor.deleteLogFile(logFileName);
+    }
+
+    @Test
+    public void testPipelineBatches() throws Exception {
+
+        // several batches of events are split ahead of the op
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 25000; i++)
+            text.append(String.format("%02d:%02d.%06d-%d,EXCP,0,Usr=user%d\n", i / 1000 % 60, i % 60, i, i, i % 5));
+        Path logFile = Files.createTempFile("v8LogScannerPipeline", ".log");
+        Files.write(logFile, text.toString().getBytes(StandardCharsets.UTF_8));
+
+        V8LogScannerClient client = new V8LanLogScannerClient();
+        ScanProfile profile = client.getProfile();
+        profile.setRgxOp(ScanProfile.RgxOpTypes.HEAP_OP);
+        profile.addLogPath(logFile.toString());
+        RegExp excp = new RegExp(EventTypes.EXCP);
+        excp.getGroupingProps().add(PropTypes.Usr);
+        profile.addRegExp(excp);
+
+        client.startRgxOp();
+        List<SelectorEntry> logs = client.select(100, SelectDirections.FORWARD);
+        assertEquals(5, logs.size());
+        assertEquals(25000, logs.stream().mapToInt(SelectorEntry::size).sum());
+
+        Files.delete(logFile);
+    }
+
+    @Test
+    public void testHotKeysReduction() throws Exception {
+
+        // few keys of many events are grouped by the workers separately and merged
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 25000; i++)
+            text.append(String.format("%02d:%02d.%06d-%d,EXCP,0,Usr=user%d\n", i / 1000 % 60, i % 60, i, i, i % 5));
+        Path logFile = Files.createTempFile("v8LogScannerHotKeys", ".log");
+        Files.write(logFile, text.toString().getBytes(StandardCharsets.UTF_8));
+
+        V8LogScannerClient client = new V8LanLogScannerClient();
+        ScanProfile profile = client.getProfile();
+        profile.setRgxOp(ScanProfile.RgxOpTypes.HEAP_OP);
+        profile.setMemoryBudget(64);
+        profile.addLogPath(logFile.toString());
+        RegExp excp = new RegExp(EventTypes.EXCP);
+        excp.getGroupingProps().add(PropTypes.Usr);
+        profile.addRegExp(excp);
+
+        client.startRgxOp();
+        List<SelectorEntry> logs = client.select(100, SelectDirections.FORWARD);
+        assertEquals(5, logs.size());
+        assertTrue(logs.stream().allMatch(n -> n.size() == 5000));
+
+        Files.delete(logFile);
+    }
+
+    @Test
+    public void testAdaptiveBatches() throws Exception {
+
+        // batch sizes and the mode of processing change during the scan, the result does not
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 120000; i++)
+            text.append(String.format("%02d:%02d.%06d-%d,EXCP,0,Usr=user%d\n", i / 1000 % 60, i % 60, i, i, i % 4));
+        Path logFile = Files.createTempFile("v8LogScannerAdaptive", ".log");
+        Files.write(logFile, text.toString().getBytes(StandardCharsets.UTF_8));
+
+        V8LogScannerClient client = new V8LanLogScannerClient();
+        List<String> info = new ArrayList<>();
+        client.addListener(info::addAll);
+        ScanProfile profile = client.getProfile();
+        profile.setRgxOp(ScanProfile.RgxOpTypes.HEAP_OP);
+        profile.addLogPath(logFile.toString());
+        RegExp excp = new RegExp(EventTypes.EXCP);
+        excp.getGroupingProps().add(PropTypes.Usr);
+        profile.addRegExp(excp);
+
+        client.startRgxOp();
+        List<SelectorEntry> logs = client.select(100, SelectDirections.FORWARD);
+        assertEquals(4, logs.size());
+        assertTrue(logs.stream().allMatch(n -> n.size() == 30000));
+        assertTrue(info.stream().anyMatch(n -> n.matches("adaptive batches: \\d+ events, buffer \\d+ chars, .*")));
+
+        Files.delete(logFile);
+    }
+
+    @Test
+    public void testScanCancellation() throws Exception {
+
+        String logFileName = constructor.addEXCP().addHASP().build(LogFileTypes.FILE);
+
+        V8LogScannerClient client = new V8LanLogScannerClient();
+        List<String> info = new ArrayList<>();
+        client.addListener(info::addAll);
+        ScanProfile profile = client.getProfile();
+        profile.setRgxOp(ScanProfile.RgxOpTypes.HEAP_OP);
+        profile.addLogPath(logFileName);
+        profile.addRegExp(new RegExp(EventTypes.EXCP));
+
+        // the cancelled scan drops its partial result
+        ScanCancellation cancellation = new ScanCancellation();
+        cancellation.cancel("test");
+        client.startRgxOp(cancellation);
+        assertTrue(client.select(100, SelectDirections.FORWARD).isEmpty());
+        assertTrue(info.contains("Scan cancelled: test"));
+
+        // the scan is cancelled when its deadline has passed
+        info.clear();
+        cancellation = new ScanCancellation(1);
+        Thread.sleep(10);
+        client.startRgxOp(cancellation);
+        assertTrue(client.select(100, SelectDirections.FORWARD).isEmpty());
+        assertTrue(info.stream().anyMatch(n -> n.startsWith("Scan cancelled: the deadline")));
+
+        // the interrupted scan is cancelled and stopped before the call returns
+        info.clear();
+        cancellation = new ScanCancellation();
+        Thread.currentThread().interrupt();
+        client.startRgxOp(cancellation);
+        assertTrue(Thread.interrupted());
+        assertEquals("the scan is interrupted", cancellation.reason());
+        assertTrue(client.select(100, SelectDirections.FORWARD).isEmpty());
+
+        // the same profile without cancellation keeps the result
+        client.startRgxOp();
+        assertEquals(3, client.select(100, SelectDirections.FORWARD).stream().mapToInt(SelectorEntry::size).sum());
+
+        V8LogFileConstructor.deleteLogFile(logFileName);
+    }
+
     @Test
     public void testFilterProcessName() {
         String logFileName = constructor
@@ -258,6 +585,535 @@ public class TestRgxOp {
         V8LogFileConstructor.deleteLogFile(logFileName);
     }
 
+    @Test
+    public void testHeapOpTopKeys() {
+
+        String logFileName = constructor
+                .addEXCP()
+                .addUserEXCP()
+                .addTDEADLOCK()
+                .build(LogFileTypes.FILE);
+
+        ClientsManager manager = new ClientsManager();
+        V8LogScannerClient localClient = manager.localClient();
+
+        ScanProfile profile = localClient.getProfile();
+        ScanProfile.buildRphostExcp(profile);
+        profile.setTopKeys(1);
+        profile.addLogPath(logFileName);
+
+        manager.startRgxOp();
+        List<SelectorEntry> logs = localClient.select(100, SelectDirections.FORWARD);
+
+        assertEquals(2, logs.size());
+        assertTrue(logs.get(1).getKey().startsWith(HeavyHitters.OTHER_KEY));
+        assertEquals(0, logs.get(1).size());
+
+        // the top key keeps the sample of its events and reports their count
+        HeavyHitters heavyHitters = new HeavyHitters(2, 3);
+        heavyHitters.offer("key", Collections.nCopies(10, "event"));
+        heavyHitters.offer("key", 5, Collections.nCopies(5, "event"));
+        assertEquals(3, heavyHitters.getResult().get("key (count: 15)").size());
+        assertEquals(15, heavyHitters.getTotal());
+
+        V8LogFileConstructor.deleteLogFile(logFileName);
+    }
+
+    @Test
+    public void testEventRefsManyFiles() throws Exception {
+
+        // file ids above 16 bits point to their own files
+        Path logFile = Files.createTempFile("v8LogScannerRefs", ".log");
+        Files.write(logFile, "52:17.000000-0,EXCP,0".getBytes(StandardCharsets.UTF_8));
+        List<String> files = new ArrayList<>(Collections.nCopies(70001, "missing.log"));
+        files.set(70000, logFile.toString());
+
+        EventRefs refs = new EventRefs(files);
+        refs.add(70000, 0, 21, 0);
+        assertEquals("52:17.000000-0,EXCP,0", refs.get(0));
+
+        Files.delete(logFile);
+    }
+
+    @Test
+    public void testResultStorageReferences() {
+
+        String logFileName = constructor
+                .addEXCP()
+                .addUserEXCP()
+                .addTDEADLOCK()
+                .addSQlDEADLOCK()
+                .addTLOCK()
+                .build(LogFileTypes.FILE);
+
+        V8LogScannerClient client = new V8LanLogScannerClient();
+
+        ScanProfile profile = client.getProfile();
+        ScanProfile.buildRphostExcp(profile);
+        profile.addLogPath(logFileName);
+
+        client.startRgxOp();
+        List<SelectorEntry> events = client.select(100, SelectDirections.FORWARD);
+
+        profile.setResultStorage(ScanProfile.ResultStorages.REFERENCES);
+        client.startRgxOp();
+        List<SelectorEntry> refs = client.select(100, SelectDirections.FORWARD);
+
+        assertEquals(events.size(), refs.size());
+        for (SelectorEntry entry : events) {
+            assertTrue(refs.stream().anyMatch(n ->
+                    n.getKey().equals(entry.getKey()) && n.getValue().equals(entry.getValue())));
+        }
+
+        profile.setResultStorage(ScanProfile.ResultStorages.OFF_HEAP);
+        client.startRgxOp();
+        List<SelectorEntry> offHeap = client.select(100, SelectDirections.FORWARD);
+
+        assertEquals(events.size(), offHeap.size());
+        for (SelectorEntry entry : events) {
+            assertTrue(offHeap.stream().anyMatch(n ->
+                    n.getKey().equals(entry.getKey()) && n.getValue().equals(entry.getValue())));
+        }
+
+        profile.clear();
+        profile.setRgxOp(ScanProfile.RgxOpTypes.USER_OP);
+        profile.setRgxExp(".*Обработка.*");
+        profile.setResultStorage(ScanProfile.ResultStorages.REFERENCES);
+        client.startRgxOp();
+        refs = client.select(100, SelectDirections.FORWARD);
+
+        assertEquals(1, refs.size());
+        assertEquals(3, refs.get(0).size());
+        assertTrue(refs.get(0).getValue().get(0).startsWith("45:36.115007-0,TDEADLOCK"));
+
+        profile.setResultStorage(ScanProfile.ResultStorages.OFF_HEAP);
+        client.startRgxOp();
+        offHeap = client.select(100, SelectDirections.FORWARD);
+
+        assertEquals(1, offHeap.size());
+        assertEquals(refs.get(0).getValue(), offHeap.get(0).getValue());
+
+        V8LogFileConstructor.deleteLogFile(logFileName);
+    }
+
+    @Test
+    public void testBatchScan() {
+
+        String logFileName = constructor
+                .addEXCP()
+                .addUserEXCP()
+                .addTDEADLOCK()
+                .addSQlDEADLOCK()
+                .addTLOCK()
+                .build(LogFileTypes.FILE);
+
+        List<ScanProfile> profiles = new ArrayList<>();
+        profiles.add(new LanScanProfile());
+        ScanProfile.buildRphostExcp(profiles.get(0));
+        profiles.add(new LanScanProfile());
+        ScanProfile.buildUserEXCP(profiles.get(1));
+        profiles.add(new LanScanProfile());
+        ScanProfile.build1cDeadlocksError(profiles.get(2));
+
+        BatchScan batch = new BatchScan();
+        List<IRgxOp> ops = new ArrayList<>();
+        profiles.forEach(profile -> ops.add(batch.add(profile, Collections.singletonList(logFileName))));
+        batch.execute();
+
+        V8LogScannerClient client = new V8LanLogScannerClient();
+        for (int i = 0; i < profiles.size(); i++) {
+            client.setProfile(profiles.get(i));
+            profiles.get(i).addLogPath(logFileName);
+            client.startRgxOp();
+            List<SelectorEntry> expected = client.select(100, SelectDirections.FORWARD);
+            List<SelectorEntry> actual = ops.get(i).select(100, SelectDirections.FORWARD);
+
+            assertTrue(expected.size() > 0);
+            assertEquals(expected.size(), actual.size());
+            for (SelectorEntry entry : expected) {
+                assertTrue(actual.stream().anyMatch(n ->
+                        n.getKey().equals(entry.getKey()) && n.getValue().equals(entry.getValue())));
+            }
+        }
+
+        // the daily auto profiles scan the log paths of the source profile
+        ScanProfile source = new LanScanProfile();
+        source.addLogPath(logFileName);
+        source.setCacheDir("cache");
+        source.setThrottleRate(512);
+        source.setScanTimeout(60);
+        List<ScanProfile> daily = ScanProfile.buildDailyProfiles(source);
+        assertEquals(5, daily.size());
+        assertTrue(daily.stream().allMatch(n -> n.getLogPaths().equals(source.getLogPaths())));
+        // and keep its scan options
+        assertTrue(daily.stream().allMatch(n -> n.getCacheDir().equals("cache")
+                && n.getThrottleRate() == 512 && n.getScanTimeout() == 60));
+
+        V8LogFileConstructor.deleteLogFile(logFileName);
+    }
+
+    @Test
+    public void testResultCache() throws Exception {
+
+        String logFile1 = constructor.addEXCP().build(LogFileTypes.FILE);
+        String logFile2 = new V8LogFileConstructor().addUserEXCP().build(LogFileTypes.FILE);
+        Path cacheDir = Files.createTempDirectory("v8LogScannerCache");
+
+        V8LogScannerClient client = new V8LanLogScannerClient();
+        List<String> info = new ArrayList<>();
+        client.addListener(info::addAll);
+
+        ScanProfile profile = client.getProfile();
+        ScanProfile.buildRphostExcp(profile);
+        profile.setCacheDir(cacheDir.toString());
+        profile.addLogPath(logFile1);
+        profile.addLogPath(logFile2);
+
+        client.startRgxOp();
+        List<SelectorEntry> scanned = client.select(100, SelectDirections.FORWARD);
+        assertTrue(info.stream().noneMatch(n -> n.startsWith("cached")));
+
+        info.clear();
+        client.startRgxOp();
+        List<SelectorEntry> cached = client.select(100, SelectDirections.FORWARD);
+
+        assertEquals(2, info.stream().filter(n -> n.startsWith("cached")).count());
+        assertEquals(scanned.size(), cached.size());
+        for (SelectorEntry entry : scanned) {
+            assertTrue(cached.stream().anyMatch(n ->
+                    n.getKey().equals(entry.getKey()) && n.getValue().equals(entry.getValue())));
+        }
+
+        // only the changed file is rescanned
+        Files.write(Paths.get(logFile2), ("\n" + new V8LogFileConstructor().addEXCP().build(LogFileTypes.TEXT))
+                .getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        Files.setLastModifiedTime(Paths.get(logFile2), FileTime.fromMillis(System.currentTimeMillis() + 60000));
+
+        info.clear();
+        client.startRgxOp();
+        List<SelectorEntry> merged = client.select(100, SelectDirections.FORWARD);
+
+        assertEquals(1, info.stream().filter(n -> n.startsWith("cached")).count());
+        assertEquals(scanned.stream().mapToInt(SelectorEntry::size).sum() + 3,
+                merged.stream().mapToInt(SelectorEntry::size).sum());
+
+        V8LogFileConstructor.deleteLogFile(logFile1);
+        V8LogFileConstructor.deleteLogFile(logFile2);
+        Files.walk(cacheDir).sorted(Comparator.reverseOrder()).forEach(n -> n.toFile().delete());
+    }
+
+    @Test
+    public void testResultCacheTopKeys() throws Exception {
+
+        // the top keys cache the counts and the samples of their events
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 250; i++)
+            text.append(String.format("00:%02d.%06d-%d,EXCP,0,Usr=user%d\n", i % 60, i, i, i % 2));
+        Path logFile = Files.createTempFile("v8LogScannerCacheTop", ".log");
+        Files.write(logFile, text.toString().getBytes(StandardCharsets.UTF_8));
+        Path cacheDir = Files.createTempDirectory("v8LogScannerCache");
+
+        V8LogScannerClient client = new V8LanLogScannerClient();
+        List<String> info = new ArrayList<>();
+        client.addListener(info::addAll);
+        ScanProfile profile = client.getProfile();
+        profile.setRgxOp(ScanProfile.RgxOpTypes.HEAP_OP);
+        profile.setTopKeys(2);
+        profile.addLogPath(logFile.toString());
+        RegExp excp = new RegExp(EventTypes.EXCP);
+        excp.getGroupingProps().add(PropTypes.Usr);
+        profile.addRegExp(excp);
+
+        client.startRgxOp();
+        List<SelectorEntry> expected = client.select(100, SelectDirections.FORWARD);
+
+        profile.setCacheDir(cacheDir.toString());
+        client.startRgxOp();
+        info.clear();
+        client.startRgxOp();
+        List<SelectorEntry> cached = client.select(100, SelectDirections.FORWARD);
+
+        assertEquals(1, info.stream().filter(n -> n.startsWith("cached out: 250")).count());
+        assertEquals(2, cached.size());
+        for (SelectorEntry entry : expected) {
+            assertEquals(HeavyHitters.SAMPLE_SIZE, entry.size());
+            assertTrue(entry.getKey().contains("(count: 125)"));
+            assertTrue(cached.stream().anyMatch(n ->
+                    n.getKey().equals(entry.getKey()) && n.getValue().equals(entry.getValue())));
+        }
+
+        Files.delete(logFile);
+        Files.walk(cacheDir).sorted(Comparator.reverseOrder()).forEach(n -> n.toFile().delete());
+    }
+
+    @Test
+    public void testResultCacheWiderFileSet() throws Exception {
+
+        String logFile1 = constructor.addEXCP().build(LogFileTypes.FILE);
+        String logFile2 = new V8LogFileConstructor().addUserEXCP().addEXCP().build(LogFileTypes.FILE);
+        Path cacheDir = Files.createTempDirectory("v8LogScannerCache");
+
+        V8LogScannerClient client = new V8LanLogScannerClient();
+        List<String> info = new ArrayList<>();
+        client.addListener(info::addAll);
+
+        ScanProfile profile = client.getProfile();
+        ScanProfile.buildRphostExcp(profile);
+        profile.setTopKeys(10);
+        profile.addLogPath(logFile1);
+        profile.addLogPath(logFile2);
+
+        client.startRgxOp();
+        List<SelectorEntry> expected = client.select(100, SelectDirections.FORWARD);
+
+        // the narrow set of files is scanned first, the wider set reuses its partial results
+        profile.setCacheDir(cacheDir.toString());
+        profile.getLogPaths().remove(logFile2);
+        client.startRgxOp();
+
+        profile.addLogPath(logFile2);
+        info.clear();
+        client.startRgxOp();
+        List<SelectorEntry> merged = client.select(100, SelectDirections.FORWARD);
+
+        assertEquals(1, info.stream().filter(n -> n.startsWith("cached")).count());
+        assertEquals(expected.size(), merged.size());
+        for (SelectorEntry entry : expected) {
+            assertTrue(merged.stream().anyMatch(n ->
+                    n.getKey().equals(entry.getKey()) && n.getValue().equals(entry.getValue())));
+        }
+
+        V8LogFileConstructor.deleteLogFile(logFile1);
+        V8LogFileConstructor.deleteLogFile(logFile2);
+        Files.walk(cacheDir).sorted(Comparator.reverseOrder()).forEach(n -> n.toFile().delete());
+    }
+
+    @Test
+    public void testColumnStore() throws Exception {
+
+        String logFile = constructor.addEXCP().addTLOCK().addDBMSSQL().addUserEXCP().build(LogFileTypes.FILE);
+        Path storeDir = Files.createTempDirectory("v8LogScannerColumns");
+
+        V8LogScannerClient client = new V8LanLogScannerClient();
+        ScanProfile profile = client.getProfile();
+        ScanProfile.buildRphostExcp(profile);
+        profile.addLogPath(logFile);
+
+        client.startRgxOp();
+        List<SelectorEntry> expected = client.select(100, SelectDirections.FORWARD);
+
+        // the first scan ingests the log file, the second one reads candidates from the stored columns
+        profile.setColumnStoreDir(storeDir.toString());
+        for (int i = 0; i < 2; i++) {
+            client.startRgxOp();
+            List<SelectorEntry> stored = client.select(100, SelectDirections.FORWARD);
+
+            assertEquals(1, Files.list(storeDir).filter(n -> n.toString().endsWith(".cols")).count());
+            assertEquals(expected.size(), stored.size());
+            for (SelectorEntry entry : expected) {
+                assertTrue(stored.stream().anyMatch(n ->
+                        n.getKey().equals(entry.getKey()) && n.getValue().equals(entry.getValue())));
+            }
+        }
+
+        ColumnStore store = ColumnStore.open(storeDir.toString(), logFile);
+        assertEquals(6, store.size());
+        assertEquals("EXCP", store.event(0));
+        assertEquals("TLOCK", store.event(3));
+        assertEquals("DefUser", store.value(PropTypes.Usr, 5));
+        assertEquals(15980, store.duration(3));
+
+        V8LogFileConstructor.deleteLogFile(logFile);
+        Files.walk(storeDir).sorted(Comparator.reverseOrder()).forEach(n -> n.toFile().delete());
+    }
+
+    @Test
+    public void testColumnStoreValueIndex() throws Exception {
+
+        String logFile = constructor.addTLOCK().addTDEADLOCK().addTTimeout().addUserEXCP().build(LogFileTypes.FILE);
+        Path storeDir = Files.createTempDirectory("v8LogScannerColumns");
+
+        V8LogScannerClient client = new V8LanLogScannerClient();
+        ScanProfile profile = client.getProfile();
+        ScanProfile.build1cDeadlocksByConnectID(profile, "17");
+        profile.addLogPath(logFile);
+
+        client.startRgxOp();
+        List<SelectorEntry> expected = client.select(100, SelectDirections.FORWARD);
+
+        profile.setColumnStoreDir(storeDir.toString());
+        client.startRgxOp();
+        List<SelectorEntry> indexed = client.select(100, SelectDirections.FORWARD);
+
+        assertEquals(expected.size(), indexed.size());
+        for (SelectorEntry entry : expected) {
+            assertTrue(indexed.stream().anyMatch(n ->
+                    n.getKey().equals(entry.getKey()) && n.getValue().equals(entry.getValue())));
+        }
+
+        ColumnStore store = ColumnStore.open(storeDir.toString(), logFile);
+        assertEquals("17", store.value(PropTypes.ConnectID, 0));
+        assertEquals("19", store.value(PropTypes.ConnectID, 2));
+        assertEquals("13", store.value(PropTypes.SessionID, 3));
+        assertEquals("Абдулов (директор)", store.value(PropTypes.Usr, 0));
+
+        boolean[] matched = new boolean[store.size()];
+        Arrays.fill(matched, true);
+        store.matchValues(PropTypes.ConnectID, Collections.singletonList("1"), matched);
+        assertTrue(matched[0] && matched[1] && matched[2] && matched[3]);
+        store.matchValues(PropTypes.ConnectID, Collections.singletonList("17"), matched);
+        assertTrue(matched[0] && matched[1] && !matched[2] && !matched[3]);
+
+        V8LogFileConstructor.deleteLogFile(logFile);
+        Files.walk(storeDir).sorted(Comparator.reverseOrder()).forEach(n -> n.toFile().delete());
+    }
+
+    @Test
+    public void testValueBloom() {
+
+        String logFile1 = constructor.addTLOCK().addTTimeout().build(LogFileTypes.FILE);
+        String logFile2 = new V8LogFileConstructor().addUserEXCP().addTTimeout().build(LogFileTypes.FILE);
+
+        // any full scan builds value filters of the files
+        V8LogScannerClient client = new V8LanLogScannerClient();
+        ScanProfile profile = client.getProfile();
+        profile.addLogPath(logFile1);
+        profile.addLogPath(logFile2);
+        client.startRgxOp();
+
+        ScanProfile.build1cDeadlocksByConnectID(profile, "17");
+        profile.addLogPath(logFile1);
+        profile.addLogPath(logFile2);
+        List<String> logFiles = new LogsOperations().readLogFiles(profile);
+        assertEquals(1, logFiles.size());
+        assertTrue(logFiles.get(0).endsWith(Paths.get(logFile1).getFileName().toString()));
+
+        // the value is found as the prefix of the connectID as the prop pattern does
+        ScanProfile.build1cDeadlocksByConnectID(profile, "1");
+        profile.addLogPath(logFile1);
+        assertEquals(1, new LogsOperations().readLogFiles(profile).size());
+
+        V8LogFileConstructor.deleteLogFile(logFile1);
+        V8LogFileConstructor.deleteLogFile(logFile2);
+    }
+
+    @Test
+    public void testValueBloomLongValues() throws Exception {
+
+        // the value longer than the prefixes of the filter is looked up by its first chars
+        StringBuilder user = new StringBuilder();
+        for (int i = 0; i < 100; i++)
+            user.append((char) ('a' + i % 26));
+        Path logFile = Files.createTempFile("v8LogScannerBloom", ".log");
+        Files.write(logFile, ("00:01.000001-1,EXCP,0,Usr=" + user + ",Descr=text\n").getBytes(StandardCharsets.UTF_8));
+
+        V8LogScannerClient client = new V8LanLogScannerClient();
+        ScanProfile profile = client.getProfile();
+        profile.addLogPath(logFile.toString());
+        client.startRgxOp();
+
+        RegExp excp = new RegExp(EventTypes.EXCP);
+        excp.getFilter(PropTypes.Usr).add(user.toString());
+        profile.getRgxList().clear();
+        profile.addRegExp(excp);
+        assertEquals(1, new LogsOperations().readLogFiles(profile).size());
+
+        excp.getFilter(PropTypes.Usr).getElements().clear();
+        excp.getFilter(PropTypes.Usr).add("zz" + user);
+        assertEquals(0, new LogsOperations().readLogFiles(profile).size());
+
+        Files.delete(logFile);
+    }
+
+    @Test
+    public void testLogCatalog() {
+
+        String logFile1 = constructor.addTLOCK().addTTimeout().build(LogFileTypes.FILE);
+        String logFile2 = new V8LogFileConstructor().addEXCP().addHASP().build(LogFileTypes.FILE);
+
+        V8LogScannerClient client = new V8LanLogScannerClient();
+        ScanProfile profile = client.getProfile();
+        profile.addLogPath(logFile1);
+        profile.addLogPath(logFile2);
+        client.startRgxOp();
+
+        LogCatalog.Entry entry = LogCatalog.getInstance().get(logFile2);
+        assertEquals(4, entry.getEvents());
+        assertEquals(3, (long) entry.getEventTypes().get("EXCP"));
+        assertEquals(2203504001L, entry.getFirstTime());
+        assertEquals(5217725002L, entry.getLastTime());
+
+        // files without events of the types are skipped
+        profile.clear();
+        profile.addRegExp(new RegExp(EventTypes.TTIMEOUT));
+        profile.addLogPath(logFile1);
+        profile.addLogPath(logFile2);
+        List<String> logFiles = new LogsOperations().readLogFiles(profile);
+        assertEquals(1, logFiles.size());
+        assertTrue(logFiles.get(0).endsWith(Paths.get(logFile1).getFileName().toString()));
+
+        // and files without events in the time filter
+        RegExp excp = new RegExp(EventTypes.EXCP);
+        excp.getFilter(PropTypes.Time).setComparisonType(ComparisonTypes.less);
+        excp.getFilter(PropTypes.Time).add("10:00");
+        profile.getRgxList().clear();
+        profile.addRegExp(excp);
+        assertEquals(0, new LogsOperations().readLogFiles(profile).size());
+
+        V8LogFileConstructor.deleteLogFile(logFile1);
+        V8LogFileConstructor.deleteLogFile(logFile2);
+    }
+
+    @Test
+    public void testReadLogDirs() throws Exception {
+
+        Path logDir = Files.createTempDirectory("v8LogScannerDirs");
+        for (String process : new String[]{"rphost_1", "rphost_2", "rmngr_3"}) {
+            Path processDir = Files.createDirectory(logDir.resolve(process));
+            for (String hour : new String[]{"26101810.log", "26101910.LOG", "26101911.log", "notes.txt"})
+                Files.write(processDir.resolve(hour), "text".getBytes(StandardCharsets.UTF_8));
+        }
+
+        ScanProfile profile = new LanScanProfile();
+        profile.addLogPath(logDir.toString());
+        profile.setLogType(ScanProfile.LogTypes.RPHOST);
+        profile.setDateRange(ScanProfile.DateRanges.SET_OWN);
+        profile.setStartDate("26101900");
+        profile.setEndDate("26101923");
+
+        List<String> logFiles = new LogsOperations().readLogFiles(profile);
+        assertEquals(4, logFiles.size());
+        assertTrue(logFiles.stream().allMatch(file -> file.contains("rphost_")));
+        assertTrue(logFiles.get(3).endsWith("26101911.log"));
+
+        // the listing of the changed directory is read again
+        Files.write(logDir.resolve("rphost_2").resolve("26101912.log"), "text".getBytes(StandardCharsets.UTF_8));
+        logFiles = new LogsOperations().readLogFiles(profile);
+        assertEquals(5, logFiles.size());
+        assertTrue(logFiles.get(4).endsWith("26101912.log"));
+
+        // the files of all log types read once are selected by the log type of the profile
+        profile.setLogType(ScanProfile.LogTypes.ANY);
+        List<String> allFiles = new LogsOperations().readLogFiles(profile);
+        assertEquals(7, allFiles.size());
+        profile.setLogType(ScanProfile.LogTypes.RPHOST);
+        assertEquals(logFiles, LogsOperations.selectLogFiles(allFiles, profile));
+
+        assertEquals(26101912L, LogsDirVisitor.parseHour("26101912.log"));
+        assertEquals(Long.MAX_VALUE, LogsDirVisitor.parseHour("rphost.log"));
+
+        // the log without the hour in its name is skipped by the date range and read without it
+        Files.write(logDir.resolve("rphost_1").resolve("rphost.log"), "text".getBytes(StandardCharsets.UTF_8));
+        logFiles = new LogsOperations().readLogFiles(profile);
+        assertEquals(5, logFiles.size());
+        assertTrue(logFiles.stream().noneMatch(file -> file.endsWith("rphost.log")));
+
+        profile.setDateRange(ScanProfile.DateRanges.ANY);
+        logFiles = new LogsOperations().readLogFiles(profile);
+        assertEquals(8, logFiles.size());
+        assertTrue(logFiles.get(7).endsWith("rphost.log"));
+    }
+
     @Test
     public void testBuildFindSQlEventByQueryFragment() {
         String logFileName = constructor
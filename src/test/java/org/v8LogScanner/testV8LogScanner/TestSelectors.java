@@ -0,0 +1,101 @@
+package org.v8LogScanner.testV8LogScanner;
+
+import org.junit.Test;
+import org.v8LogScanner.LocalTCPLogScanner.LanScanProfile;
+import org.v8LogScanner.rgx.CursorOp;
+import org.v8LogScanner.rgx.CursorSelector;
+import org.v8LogScanner.rgx.HeapSelector;
+import org.v8LogScanner.rgx.IRgxSelector.SelectDirections;
+import org.v8LogScanner.rgx.SelectorEntry;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestSelectors {
+
+    @Test
+    public void testHeapSelectorPaging() {
+
+        ConcurrentMap<String, List<String>> result = new ConcurrentHashMap<>();
+        for (int i = 1; i <= 10; i++)
+            result.put("key" + i, Collections.nCopies(i, "event"));
+
+        HeapSelector selector = new HeapSelector();
+        selector.setResult(result);
+
+        List<SelectorEntry> page = selector.select(3, SelectDirections.FORWARD);
+        assertEquals(3, page.size());
+        assertEquals("key10", page.get(0).getKey());
+        assertEquals("key8", page.get(2).getKey());
+
+        page = selector.select(3, SelectDirections.FORWARD);
+        assertEquals("key7", page.get(0).getKey());
+        assertEquals(6, selector.cursorIndex());
+
+        page = selector.select(3, SelectDirections.BACKWARD);
+        assertEquals("key7", page.get(0).getKey());
+
+        // incremental update moves the key to its new place
+        selector.put("key1", Collections.nCopies(20, "event"));
+        selector.put("key11", new ArrayList<>(Collections.nCopies(5, "event")));
+
+        page = selector.select(100, SelectDirections.BACKWARD);
+        assertEquals(3, page.size());
+        assertEquals("key1", page.get(0).getKey());
+
+        page = selector.select(100, SelectDirections.FORWARD);
+        assertEquals(11, page.size());
+        assertEquals("key1", page.get(0).getKey());
+        assertEquals(20, page.get(0).size());
+        assertEquals(5, page.get(6).size());
+        assertEquals(2, page.get(10).size());
+
+        // the group changed in place before it is put again is moved too
+        List<String> key11 = selector.getResult().get("key11");
+        key11.addAll(Collections.nCopies(10, "event"));
+        selector.put("key11", key11);
+
+        page = selector.select(100, SelectDirections.FORWARD);
+        assertEquals(11, page.size());
+        assertEquals(1, page.stream().filter(n -> n.getKey().equals("key11")).count());
+        assertEquals("key11", page.get(1).getKey());
+        assertEquals(15, page.get(1).size());
+    }
+
+    @Test
+    public void testCursorSelectorPositionalAccess() {
+
+        CursorOp op = new CursorOp(new LanScanProfile());
+        TreeMap<CursorOp.SortingKey, List<String>> result = new TreeMap<>();
+        for (int i = 1; i <= 10; i++)
+            result.put(op.new DurationKey("key" + i, BigInteger.valueOf(i * 10)), Collections.singletonList("event" + i));
+
+        CursorSelector selector = new CursorSelector();
+        selector.setResult(result);
+
+        assertEquals(10, selector.size());
+        assertEquals("[event10]", selector.get(0).toString());
+        assertEquals("[event1]", selector.get(9).toString());
+
+        assertEquals(0, selector.indexOf(BigInteger.valueOf(1000)));
+        assertEquals(5, selector.indexOf(BigInteger.valueOf(50)));
+        assertEquals(5, selector.indexOf(BigInteger.valueOf(55)));
+        assertEquals(10, selector.indexOf(BigInteger.valueOf(1)));
+
+        selector.jumpTo(selector.indexOf(BigInteger.valueOf(30)));
+        List<SelectorEntry> page = selector.select(5, SelectDirections.FORWARD);
+        assertEquals(3, page.size());
+        assertEquals("[event3]", page.get(0).toString());
+
+        page = selector.select(2, SelectDirections.BACKWARD);
+        assertEquals(2, page.size());
+        assertEquals("[event3]", page.get(0).toString());
+    }
+}